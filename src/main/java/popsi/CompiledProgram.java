@@ -0,0 +1,40 @@
+package popsi;
+
+import popsi.analysis.typed_ast.TypedAst;
+import popsi.interpreter.Interpreter;
+
+/// Um programa Popsi compilado por `PopsiEngine`, pronto para ser executado
+/// quantas vezes for preciso.
+///
+/// Guarda o programa analisado e otimizado, que não muda depois de criado, e o
+/// interpretador preparado para ele. Cada chamada de `invoke` tem a sua pilha e
+/// as suas tarefas, então várias threads podem chamar funções do mesmo
+/// programa ao mesmo tempo.
+public final class CompiledProgram {
+    private final TypedAst.Program program;
+    private final Interpreter interpreter;
+
+    CompiledProgram(TypedAst.Program program, Interpreter interpreter) {
+        this.program = program;
+        this.interpreter = interpreter;
+    }
+
+    /// O programa analisado e otimizado.
+    public TypedAst.Program program() {
+        return program;
+    }
+
+    public boolean hasFunction(String name) {
+        return interpreter.hasFunction(name);
+    }
+
+    /// Chama a função `name`. Os argumentos e o resultado são valores Java:
+    /// inteiros, `Double`, `Boolean`, caracteres (`Character` ou o código em um
+    /// `Integer`), `String`, listas (ou arrays) e mapas, convertidos de e para
+    /// os tipos da função. Um erro de execução do
+    /// programa é lançado como `RuntimeError`, e um argumento que não pode ser
+    /// convertido, como `IllegalArgumentException`.
+    public Object invoke(String name, Object... arguments) {
+        return interpreter.invoke(name, arguments);
+    }
+}
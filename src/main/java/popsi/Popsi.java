@@ -4,12 +4,17 @@ import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.HashSet;
 import java.util.List;
 import popsi.analysis.Analyser;
 import popsi.lexer.Lexer;
+import popsi.interpreter.Interpreter;
+import popsi.interpreter.RuntimeError;
+import popsi.optimizer.Optimizer;
 import popsi.parser.Parser;
 import popsi.parser.ast.*;
 import popsi.parser.ast.Ast.Program;
+import popsi.runtime.heap.Heap;
 
 public class Popsi {
     public static void main(String... args) {
@@ -59,11 +64,69 @@ public class Popsi {
         var program = (Program) ast;
         var astProg = new Ast.Program(program.functions(), program.records());
         var analysisResult = Analyser.analyse(astProg);
-        @SuppressWarnings("unused")
         var typedAst = checkResult(analysisResult);
+        typedAst.table().printSymbolTable();
 
-        System.out.println("\n[Geração de código]");
-        System.out.println("TODO");
-        // TODO: geração de código
+        var optimized = Optimizer.optimize(typedAst, options());
+
+        // TODO: geração de código nativo; por enquanto o programa é interpretado
+        System.out.println("\n[Execução]");
+        var interpreter = new Interpreter(optimized, heap());
+        if (interpreter.hasFunction("main")) {
+            try {
+                interpreter.run();
+            } catch (RuntimeError e) {
+                System.err.println("erro de execução: " + e.getMessage());
+                System.exit(1);
+            }
+        }
+    }
+
+    /// As opções do otimizador, sem os passes listados, separados por vírgulas,
+    /// na propriedade `popsi.optimizer.skip` (veja `Optimizer.PASSES`).
+    private static Optimizer.Options options() {
+        var skip = System.getProperty("popsi.optimizer.skip", "").trim();
+        if (skip.isEmpty()) {
+            return Optimizer.Options.DEFAULT;
+        }
+        var passes = new HashSet<String>();
+        for (var pass : skip.split(",")) {
+            passes.add(pass.trim());
+        }
+        try {
+            return Optimizer.Options.DEFAULT.skipping(passes);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage() + ". Passes: " + String.join(", ", Optimizer.PASSES));
+            System.exit(1);
+            return null;
+        }
+    }
+
+    /// O heap configurado pelas propriedades `popsi.heap.max` (memória viva
+    /// máxima) e `popsi.heap.nursery` (bytes alocados entre duas contagens da
+    /// memória viva), em bytes ou com os sufixos `k`, `m` e `g`.
+    private static Heap heap() {
+        var max = System.getProperty("popsi.heap.max");
+        if (max == null) {
+            return Heap.unlimited();
+        }
+        return new Heap(size(max), size(System.getProperty("popsi.heap.nursery", "8m")));
+    }
+
+    private static long size(String value) {
+        var text = value.trim().toLowerCase();
+        var unit = switch (text.isEmpty() ? ' ' : text.charAt(text.length() - 1)) {
+            case 'k' -> 1L << 10;
+            case 'm' -> 1L << 20;
+            case 'g' -> 1L << 30;
+            default -> 1L;
+        };
+        try {
+            return Long.parseLong(unit == 1 ? text : text.substring(0, text.length() - 1)) * unit;
+        } catch (NumberFormatException e) {
+            System.err.println("Tamanho de heap inválido: " + value);
+            System.exit(1);
+            return 0;
+        }
     }
-}
\ No newline at end of file
+}
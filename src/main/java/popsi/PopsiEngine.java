@@ -0,0 +1,66 @@
+package popsi;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.function.Supplier;
+
+import popsi.analysis.Analyser;
+import popsi.interpreter.Interpreter;
+import popsi.lexer.Lexer;
+import popsi.optimizer.Optimizer;
+import popsi.parser.Parser;
+import popsi.runtime.heap.Heap;
+import popsi.runtime.io.Output;
+
+/// Ponto de entrada para usar Popsi de dentro de um programa Java.
+///
+/// `compile` faz as análises léxica, sintática e semântica e a otimização uma
+/// única vez, e o `CompiledProgram` resultante pode ser chamado muitas vezes,
+/// inclusive por várias threads. Diferente de `Popsi.main`, nada é impresso e
+/// os erros de compilação são retornados, sem encerrar o processo. O que os
+/// programas escrevem com `debug` vai para a saída padrão, ou para o destino
+/// dado ao motor.
+public final class PopsiEngine {
+    private final Optimizer.Options options;
+    private final Supplier<Heap> heap;
+    private final Output output;
+
+    public PopsiEngine() {
+        this(Optimizer.Options.DEFAULT, Heap::unlimited);
+    }
+
+    /// `heap` cria o heap de cada programa compilado, compartilhado pelas suas
+    /// chamadas.
+    public PopsiEngine(Optimizer.Options options, Supplier<Heap> heap) {
+        this(options, heap, Output.STDOUT);
+    }
+
+    /// `output` recebe o que os programas compilados escrevem com `debug`, ao
+    /// fim de cada chamada a `invoke`.
+    public PopsiEngine(Optimizer.Options options, Supplier<Heap> heap, OutputStream output) {
+        this(options, heap, Output.to(output));
+    }
+
+    private PopsiEngine(Optimizer.Options options, Supplier<Heap> heap, Output output) {
+        this.options = options;
+        this.heap = heap;
+        this.output = output;
+    }
+
+    public Result<CompiledProgram, List<CompilerError>> compile(String source) {
+        var tokens = Lexer.lex(source);
+        if (!tokens.isSuccess()) {
+            return new Result.Error<>(tokens.unwrapErr());
+        }
+        var ast = Parser.parse(tokens.unwrap());
+        if (!ast.isSuccess()) {
+            return new Result.Error<>(ast.unwrapErr());
+        }
+        var analysis = Analyser.analyse(ast.unwrap());
+        if (!analysis.isSuccess()) {
+            return new Result.Error<>(analysis.unwrapErr());
+        }
+        var optimized = Optimizer.optimize(analysis.unwrap(), options);
+        return new Result.Success<>(new CompiledProgram(optimized, new Interpreter(optimized, heap.get(), output)));
+    }
+}
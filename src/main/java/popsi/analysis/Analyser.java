@@ -27,6 +27,7 @@ import popsi.parser.ast.Expr;
 import popsi.parser.ast.Ast;
 import popsi.parser.ast.Stmt;
 import popsi.parser.ast.TypeAst;
+import popsi.runtime.Intrinsics;
 
 public class Analyser {
     public static Result<TypedAst.Program, List<CompilerError>> analyse(Ast.Program program) {
@@ -34,7 +35,6 @@ public class Analyser {
         var typedProgram = analyser.program(program);
 
         if (analyser.errors.isEmpty()) {
-            analyser.table.printSymbolTable();
             return new Result.Success<>(typedProgram);
         } else {
             return new Result.Error<>(analyser.errors);
@@ -45,6 +45,10 @@ public class Analyser {
     private SymbolTable table;
     private Environment environment;
     private Optional<Id<FunctionInfo>> currentFunction;
+    // funções do prelúdio implementadas em Java
+    private final HashSet<Id<FunctionInfo>> intrinsics = new HashSet<>();
+    // funções declaradas no programa, as únicas que `spawn` pode chamar
+    private final HashSet<Id<FunctionInfo>> programFunctions = new HashSet<>();
 
     private Analyser() {
         errors = new ArrayList<>();
@@ -86,6 +90,102 @@ public class Analyser {
             var constructorInfo = new FunctionInfo(type.name(), constructorTypeId);
             environment.put(type.name(), new EnvEntry.Function(table.functions().insert(constructorInfo)));
         }
+
+        // registra as funções implementadas em Java
+        for (var intrinsic : Intrinsics.all()) {
+            var id = table.functions().insert(
+                    new FunctionInfo(intrinsic.name(), table.typeId(intrinsic.type()), intrinsic.effects()));
+            environment.put(intrinsic.name(), new EnvEntry.Function(id));
+            intrinsics.add(id);
+        }
+    }
+
+    // Se o nome já está em uso. As intrínsecas podem ser ocultadas por funções
+    // e variáveis do programa, para que os nomes continuem livres.
+    private boolean declared(String name) {
+        return environment.get(name)
+                .filter(entry -> !(entry instanceof EnvEntry.Function function
+                        && intrinsics.contains(function.functionId())))
+                .isPresent();
+    }
+
+    // O retorno `{numeric}` ou `[any]` de uma intrínseca genérica é o tipo dos
+    // seus argumentos, que devem ter todos o mesmo tipo.
+    private Type returnType(Expr call, Type.Function function, List<TypedExpr.Argument> arguments) {
+        var ret = function.ret();
+        var container = !function.args().isEmpty() && (function.args().get(0).equals(ANY_MAP)
+                || function.args().get(0).equals(ANY_LIST) || function.args().get(0).equals(NUMERIC_LIST)
+                || function.args().get(0).equals(ANY_CHANNEL));
+        if (container && (ret.equals(Type.ANY) || function.args().contains(Type.ANY))
+                && arguments.size() == function.args().size()) {
+            return containerReturnType(call, function, arguments);
+        }
+        var generic = ret.equals(Type.NUMERIC) || ret.equals(ANY_LIST) && container;
+        if (!generic || arguments.isEmpty()) {
+            return ret;
+        }
+        var result = table.typeDefinition(arguments.get(0).type());
+        for (var argument : arguments.subList(1, arguments.size())) {
+            result = TypeAlgebra.glb(result, table.typeDefinition(argument.type()));
+        }
+        if (result.equals(Type.NOTHING)) {
+            error(call, "Os argumentos devem ter o mesmo tipo.");
+            return Type.INVALID;
+        }
+        return result;
+    }
+
+    private static final Type ANY_MAP = new Type.Named("map", List.of(Type.ANY, Type.ANY));
+    private static final Type ANY_LIST = new Type.Named("[]", List.of(Type.ANY));
+    private static final Type NUMERIC_LIST = new Type.Named("[]", List.of(Type.NUMERIC));
+    private static final Type ANY_CHANNEL = new Type.Named("chan", List.of(Type.ANY));
+
+    // Nas funções de mapas, listas e canais, como `get(m, k)`, `put(m, k, v)`,
+    // `push(v, x)` e `send(c, x)`, os argumentos `any` devem ter os tipos `K`
+    // e `V` de `m` (ou `T` de `v` e `c`), e o retorno `any` é `V` (ou `T`).
+    private Type containerReturnType(Expr call, Type.Function function, List<TypedExpr.Argument> arguments) {
+        var ret = function.ret();
+        var container = table.typeDefinition(arguments.get(0).type());
+        if (!TypeAlgebra.isMap(container) && !TypeAlgebra.isList(container) && !TypeAlgebra.isChannel(container)) {
+            return ret.equals(Type.ANY) ? Type.INVALID : ret;
+        }
+        var args = ((Type.Named) container).args();
+        for (int i = 1; i < arguments.size(); i++) {
+            if (!function.args().get(i).equals(Type.ANY)) {
+                continue;
+            }
+            var expected = args.get(Math.min(i - 1, args.size() - 1));
+            if (!compatibleTypes(arguments.get(i).type(), table.typeId(expected))) {
+                var place = TypeAlgebra.isList(container) ? "o elemento da lista"
+                        : TypeAlgebra.isChannel(container) ? "o valor do canal"
+                        : i == 1 ? "a chave do mapa" : "o valor do mapa";
+                error(call, "Tipo incompatível para " + place + ". Esperado: " + expected + ", recebido: "
+                        + table.typeDefinition(arguments.get(i).type()));
+            }
+        }
+        return ret.equals(Type.ANY) ? args.get(args.size() - 1) : ret;
+    }
+
+    // Um valor sem o tipo dos elementos recebe o tipo declarado: `map()` em
+    // `let m: map[K, V] = map()` cria um mapa com chaves `K`, `[]` e
+    // `with_capacity(n)` em `let v: [T] = ...` criam listas de `T`, e
+    // `channel(n)` em `let c: chan[T] = ...` cria um canal de `T`.
+    private TypedExpr expected(TypedExpr value, Id<TypeInfo> type) {
+        var declared = table.typeDefinition(type);
+        return switch (value) {
+            case TypedExpr.FunctionCall call when table.typeDefinition(call.type()).equals(ANY_MAP)
+                    && TypeAlgebra.isMap(declared) ->
+                new TypedExpr.FunctionCall(call.target(), call.arguments(), type);
+            case TypedExpr.FunctionCall call when table.typeDefinition(call.type()).equals(ANY_LIST)
+                    && TypeAlgebra.isList(declared) ->
+                new TypedExpr.FunctionCall(call.target(), call.arguments(), type);
+            case TypedExpr.FunctionCall call when table.typeDefinition(call.type()).equals(ANY_CHANNEL)
+                    && TypeAlgebra.isChannel(declared) ->
+                new TypedExpr.FunctionCall(call.target(), call.arguments(), type);
+            case TypedExpr.ListExpression list when list.elements().isEmpty() && TypeAlgebra.isList(declared) ->
+                new TypedExpr.ListExpression(list.position(), list.elements(), type);
+            default -> value;
+        };
     }
 
     private TypedAst.Program program(Ast.Program program) {
@@ -98,16 +198,17 @@ public class Analyser {
             recordIds.add(declareRec(record));
         }
 
+        // depois, faz a análise dos tipos efetivamente. Os registros são
+        // definidos antes das assinaturas das funções, que podem usá-los.
+        for (int i = 0; i < program.records().size(); i++) {
+            records.add(defineRec(recordIds.get(i), program.records().get(i)));
+        }
+
         var functionIds = new ArrayList<Id<FunctionInfo>>();
         for (var function : program.functions()) {
             functionIds.add(declareFunction(function));
         }
 
-        // depois, faz a análise dos tipos efetivamente.
-        for (int i = 0; i < program.records().size(); i++) {
-            records.add(defineRec(recordIds.get(i), program.records().get(i)));
-        }
-
         for (int i = 0; i < program.functions().size(); i++) {
             functions.add(defineFunction(functionIds.get(i), program.functions().get(i)));
         }
@@ -166,10 +267,11 @@ public class Analyser {
         table.functions().insert(functionInfoId, functionInfo);
 
         // Registrar a função no escopo externo
-        if (environment.get(functionInfo.name()).isPresent()) {
+        if (declared(functionInfo.name())) {
             error(function.name(), "Função '" + functionInfo.name() + "' já foi declarada.");
         } else {
             environment.put(functionInfo.name(), new EnvEntry.Function(functionInfoId));
+            programFunctions.add(functionInfoId);
         }
 
         // Analisa parâmetros
@@ -308,7 +410,7 @@ public class Analyser {
                 var resolvedType = typeAst(typeAst);
 
                 // Analisar a expressão inicial, se houver
-                var typedValue = value.map(this::expression);
+                var typedValue = value.map(this::expression).map(v -> expected(v, resolvedType));
 
                 // Validar compatibilidade de tipos
                 if (typedValue.isPresent()) {
@@ -337,7 +439,7 @@ public class Analyser {
                 var localId = table.locals().insert(localInfo);
 
                 // Adiciona variável local ao escopo
-                if (environment.get(name.lexeme()).isPresent()) {
+                if (declared(name.lexeme())) {
                     error(name, "Variável '" + name.lexeme() + "' já foi declarada.");
                 } else {
                     environment.put(name.lexeme(), new EnvEntry.Local(localId));
@@ -926,8 +1028,10 @@ public class Analyser {
                             yield new TypedExpr.UnaryExpression(operator, operandExpr, table.typeId(Type.I32));
                         } else if (operandType instanceof Type.Named named && named.name() == "[]") {
                             yield new TypedExpr.UnaryExpression(operator, operandExpr, table.typeId(Type.I32));
+                        } else if (TypeAlgebra.isMap(operandType)) {
+                            yield new TypedExpr.UnaryExpression(operator, operandExpr, table.typeId(Type.I32));
                         } else {
-                            error(operator, "Operador '#' requer um operando do tipo 'str' ou lista.");
+                            error(operator, "Operador '#' requer um operando do tipo 'str', lista ou mapa.");
                             yield new TypedExpr.UnaryExpression(operator, operandExpr, table.typeId(Type.INVALID));
                         }
                     }
@@ -1049,7 +1153,8 @@ public class Analyser {
                 }
 
                 // O tipo da chamada é o tipo de retorno da função
-                return new TypedExpr.FunctionCall(typedTarget, typedArguments, table.typeId(functionType.ret()));
+                return new TypedExpr.FunctionCall(typedTarget, typedArguments,
+                        table.typeId(returnType(expr, functionType, typedArguments)));
             }
 
             case Expr.Argument(Optional<Token> label, Expr value): {
@@ -1063,29 +1168,40 @@ public class Analyser {
                 var placeExpr = expression(place);
                 var targetType = table.typeDefinition(targetExpr.type());
 
+                // Fatia: `alvo[a..b]` tem o tipo do alvo
+                if (table.typeDefinition(placeExpr.type()) instanceof Type.Named rangeType
+                        && rangeType.name().equals("..")) {
+                    if (!targetType.equals(Type.STR) && !TypeAlgebra.isList(targetType)) {
+                        error(target, "O alvo de uma fatia deve ser uma lista ou string. Recebido: " + targetType);
+                        return new TypedExpr.Slice(targetExpr, placeExpr, table.typeId(Type.INVALID));
+                    }
+                    return new TypedExpr.Slice(targetExpr, placeExpr, targetExpr.type());
+                }
+
                 if (targetType.equals(Type.STR)) {
                     // Analisar o índice
                     if (!compatibleTypes(placeExpr.type(), table.typeId(Type.I_LITERAL))) {
                         error(place,
                                 "O índice de acesso deve ser um número inteiro.");
-                        return new TypedExpr.ListAccess(targetExpr, placeExpr, table.typeId(Type.INVALID));
+                        return new TypedExpr.ListAccess(targetExpr, placeExpr, true, table.typeId(Type.INVALID));
                     }
 
-                    return new TypedExpr.ListAccess(targetExpr, placeExpr, table.typeId(Type.CHAR));
+                    return new TypedExpr.ListAccess(targetExpr, placeExpr, true, table.typeId(Type.CHAR));
                 } else if (targetType instanceof Type.Named listType && listType.name().equals("[]")) {
                     // Analisar o índice
                     if (!compatibleTypes(placeExpr.type(), table.typeId(Type.I_LITERAL))) {
                         error(place,
                                 "O índice de acesso deve ser um número inteiro.");
-                        return new TypedExpr.ListAccess(targetExpr, placeExpr, table.typeId(Type.INVALID));
+                        return new TypedExpr.ListAccess(targetExpr, placeExpr, true, table.typeId(Type.INVALID));
                     }
 
                     // Retornar o tipo dos elementos da lista
-                    return new TypedExpr.ListAccess(targetExpr, placeExpr, table.typeId(listType.args().get(0)));
+                    return new TypedExpr.ListAccess(targetExpr, placeExpr, true,
+                            table.typeId(listType.args().get(0)));
                 } else {
                     error(target,
                             "O alvo do acesso deve ser uma lista. Recebido: " + targetType);
-                    return new TypedExpr.ListAccess(targetExpr, placeExpr, table.typeId(Type.INVALID));
+                    return new TypedExpr.ListAccess(targetExpr, placeExpr, true, table.typeId(Type.INVALID));
                 }
 
             }
@@ -1136,6 +1252,12 @@ public class Analyser {
                 return new TypedExpr.ForExpression(variable, typeAst, rangeExpr, bodyExpr, table.typeId(Type.UNIT));
             }
 
+            case Expr.ParForExpression(Token keyword, Expr.ForExpression forExpr): {
+                var loop = (TypedExpr.ForExpression) expression(forExpr);
+                var reductions = new ParReductions(table, errors).of(keyword, loop);
+                return new TypedExpr.ParallelFor(loop, reductions, PAR_MIN_TRIPS, false, loop.type());
+            }
+
             case Expr.IfExpression(Token _, Expr condition, Expr.Block thenBranch, Optional<Expr> elseBranch): {
                 var conditionExpr = expression(condition);
 
@@ -1239,12 +1361,28 @@ public class Analyser {
                 return new TypedExpr.ReadExpression(typedVariables, table.typeId(Type.UNIT));
             }
 
+            case Expr.SpawnExpression(Token keyword, Expr.FunctionCall call): {
+                var typedCall = (TypedExpr.FunctionCall) expression(call);
+                var callee = call.target() instanceof Expr.VariableExpression(Token name)
+                        ? environment.get(name.lexeme())
+                        : Optional.<EnvEntry>empty();
+                if (!(callee.orElse(null) instanceof EnvEntry.Function(Id<FunctionInfo> function))
+                        || !programFunctions.contains(function)) {
+                    error(keyword, "'spawn' só pode chamar funções declaradas no programa.");
+                    return new TypedExpr.SpawnExpression(typedCall, table.typeId(Type.INVALID));
+                }
+                return new TypedExpr.SpawnExpression(typedCall, table.typeId(Type.UNIT));
+            }
+
             case Expr.Block block:
                 return block(block);
         }
 
     }
 
+    // com uma iteração, não há o que dividir entre threads
+    private static final long PAR_MIN_TRIPS = 2;
+
     private boolean isAssignableExpression(TypedExpr leftExpr) {
         return leftExpr instanceof TypedExpr.VariableExpression
                 || leftExpr instanceof TypedExpr.RecAccess
@@ -1253,7 +1391,22 @@ public class Analyser {
 
     private Id<TypeInfo> typeAst(TypeAst typeAst) {
         switch (typeAst) {
-            case TypeAst.Named(Token name): {
+            case TypeAst.Named(Token name, List<TypeAst> args) when !args.isEmpty(): {
+                if (name.lexeme().equals("chan") && args.size() == 1) {
+                    return table.typeId(new Type.Named("chan", List.of(table.typeDefinition(typeAst(args.get(0))))));
+                }
+                if (!name.lexeme().equals("map") || args.size() != 2) {
+                    error(name, "Apenas os tipos 'map' e 'chan' recebem argumentos, nas formas map[K, V] e chan[T].");
+                    return table.typeId(Type.INVALID);
+                }
+                var key = table.typeDefinition(typeAst(args.get(0)));
+                var value = table.typeDefinition(typeAst(args.get(1)));
+                if (!TypeAlgebra.isIntegerType(key) && !key.equals(Type.CHAR) && !key.equals(Type.STR)) {
+                    error(name, "As chaves de um mapa devem ser inteiros, 'char' ou 'str'; recebido: " + key + ".");
+                }
+                return table.typeId(new Type.Named("map", List.of(key, value)));
+            }
+            case TypeAst.Named(Token name, List<TypeAst> _): {
                 var entry = environment.getType(name.lexeme());
                 if (!entry.isPresent()) {
                     error(name, "Uso de tipo não declarado");
@@ -0,0 +1,52 @@
+package popsi.analysis;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import popsi.analysis.typed_ast.TypedExpr;
+import popsi.analysis.typed_ast.Walker;
+import popsi.lexer.Token;
+import popsi.lexer.Token.TokenType;
+
+/// Coleta os nomes das variáveis que podem ser sobrescritas por uma expressão,
+/// seja por atribuição (`=`, `+=`, ...) ou por `read`.
+public class AssignedVariables extends Walker {
+    private final Set<String> names = new HashSet<>();
+
+    private AssignedVariables() {
+    }
+
+    public static Set<String> of(TypedExpr expr) {
+        var walker = new AssignedVariables();
+        walker.expr(expr);
+        return walker.names;
+    }
+
+    public static boolean isAssignment(Token operator) {
+        return switch (operator.type()) {
+            case TokenType.EQUAL, TokenType.PLUS_EQUAL, TokenType.MINUS_EQUAL, TokenType.STAR_EQUAL,
+                    TokenType.SLASH_EQUAL, TokenType.PERCENT_EQUAL, TokenType.HAT_EQUAL ->
+                true;
+            default -> false;
+        };
+    }
+
+    @Override
+    protected void expr(TypedExpr expr) {
+        switch (expr) {
+            case TypedExpr.BinaryExpression bin when isAssignment(bin.operator())
+                    && bin.left() instanceof TypedExpr.VariableExpression variable ->
+                names.add(variable.name().lexeme());
+            case TypedExpr.ReadExpression read -> {
+                for (var variable : read.variables()) {
+                    if (variable instanceof TypedExpr.VariableExpression v) {
+                        names.add(v.name().lexeme());
+                    }
+                }
+            }
+            default -> {
+            }
+        }
+        super.expr(expr);
+    }
+}
@@ -23,6 +23,7 @@ public class Cfa {
         return switch (expr) {
             case TypedExpr.Literal _ -> CfaResult.CONTINUE;
             case TypedExpr.VariableExpression _ -> CfaResult.CONTINUE;
+            case TypedExpr.Counter _ -> CfaResult.CONTINUE;
             case TypedExpr.ListExpression list -> {
                 for (TypedExpr element : list.elements()) {
                     var result = visitExpr(element, expected);
@@ -54,6 +55,7 @@ public class Cfa {
                 yield CfaResult.CONTINUE;
             }
             case TypedExpr.Argument arg -> visitExpr(arg.value(), expected);
+            case TypedExpr.Conversion conversion -> visitExpr(conversion.value(), expected);
             case TypedExpr.ListAccess access -> {
                 var target = visitExpr(access.target(), expected);
                 if (target != CfaResult.CONTINUE) {
@@ -65,6 +67,13 @@ public class Cfa {
                 }
                 yield CfaResult.CONTINUE;
             }
+            case TypedExpr.Slice slice -> {
+                var target = visitExpr(slice.target(), expected);
+                if (target != CfaResult.CONTINUE) {
+                    yield target;
+                }
+                yield visitExpr(slice.range(), expected);
+            }
             case TypedExpr.RecAccess rec -> {
                 var target = visitExpr(rec.target(), expected);
                 if (target != CfaResult.CONTINUE) {
@@ -132,6 +141,19 @@ public class Cfa {
                     yield CfaResult.RETURNED_OTHER;
                 }
             }
+            case TypedExpr.ParallelFor parallel -> visitExpr(parallel.loop(), expected);
+            case TypedExpr.CountedFor counted -> visitExpr(counted.loop(), expected);
+            // a chamada em cauda devolve o resultado da própria função
+            case TypedExpr.TailCall _ -> CfaResult.RETURNED_TYPE;
+            case TypedExpr.ColumnList columns -> visitExpr(columns.list(), expected);
+            case TypedExpr.FrameLocal local -> visitExpr(local.value(), expected);
+            case TypedExpr.ColumnAccess access -> {
+                var target = visitExpr(access.target(), expected);
+                if (target != CfaResult.CONTINUE) {
+                    yield target;
+                }
+                yield visitExpr(access.place(), expected);
+            }
             case TypedExpr.DebugExpression debug -> {
                 var result = visitExpr(debug.value(), expected);
                 if (result != CfaResult.CONTINUE) {
@@ -181,6 +203,7 @@ public class Cfa {
                 }
                 yield CfaResult.CONTINUE;
             }
+            case TypedExpr.SpawnExpression spawn -> visitExpr(spawn.call(), expected);
         };
     }
 
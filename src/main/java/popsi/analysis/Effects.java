@@ -0,0 +1,32 @@
+package popsi.analysis;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/// Resumo dos efeitos observáveis de uma função.
+///
+/// `mutatedParameters` guarda os índices dos parâmetros (listas ou registros)
+/// cujo conteúdo pode ser alterado pela função, e que portanto são vistos
+/// alterados por quem a chamou.
+public record Effects(boolean readsInput, boolean writesOutput, Set<Integer> mutatedParameters) {
+    public static final Effects NONE = new Effects(false, false, Set.of());
+
+    public Effects {
+        mutatedParameters = Set.copyOf(mutatedParameters);
+    }
+
+    /// Uma função pura não faz entrada nem saída e não altera seus argumentos.
+    public boolean isPure() {
+        return !readsInput && !writesOutput && mutatedParameters.isEmpty();
+    }
+
+    public boolean mutates(int parameter) {
+        return mutatedParameters.contains(parameter);
+    }
+
+    public Effects union(Effects other) {
+        var mutated = new HashSet<>(mutatedParameters);
+        mutated.addAll(other.mutatedParameters);
+        return new Effects(readsInput || other.readsInput, writesOutput || other.writesOutput, mutated);
+    }
+}
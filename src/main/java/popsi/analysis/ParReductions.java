@@ -0,0 +1,118 @@
+package popsi.analysis;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+
+import popsi.CompilerError;
+import popsi.CompilerError.ErrorType;
+import popsi.analysis.Type.TypeAlgebra;
+import popsi.analysis.typed_ast.TypedExpr;
+import popsi.analysis.typed_ast.TypedStmt;
+import popsi.analysis.typed_ast.Walker;
+import popsi.lexer.Token;
+import popsi.lexer.Token.TokenType;
+
+/// As reduções de um `par for`: as variáveis de fora do loop que só recebem
+/// `+=` (ou só `*=`) no corpo. Como as iterações rodam em paralelo, qualquer
+/// outra alteração de uma variável de fora do loop é um erro, assim como ler
+/// uma redução, cujo valor no meio do loop é só o de um bloco de iterações.
+class ParReductions {
+    private final SymbolTable table;
+    private final List<CompilerError> errors;
+
+    ParReductions(SymbolTable table, List<CompilerError> errors) {
+        this.table = table;
+        this.errors = errors;
+    }
+
+    /// As reduções do `par for` cujo corpo é `loop`, informando como erros
+    /// as alterações e leituras proibidas.
+    List<TypedExpr.Reduction> of(Token keyword, TypedExpr.ForExpression loop) {
+        var index = loop.variable().lexeme();
+        var declared = new HashSet<String>();
+        new Walker() {
+            @Override
+            protected void stmt(TypedStmt stmt) {
+                if (stmt instanceof TypedStmt.Declaration decl) {
+                    declared.add(decl.name().lexeme());
+                }
+                super.stmt(stmt);
+            }
+
+            @Override
+            protected void expr(TypedExpr expr) {
+                if (expr instanceof TypedExpr.ForExpression inner) {
+                    declared.add(inner.variable().lexeme());
+                }
+                super.expr(expr);
+            }
+        }.expr(loop.body());
+
+        var reductions = new LinkedHashMap<String, TypedExpr.Reduction>();
+        var reads = new ArrayList<Token>();
+        new Walker() {
+            private void write(TypedExpr.VariableExpression variable, Optional<Token> operator) {
+                var name = variable.name();
+                if (declared.contains(name.lexeme())) {
+                    return;
+                }
+                if (name.lexeme().equals(index)) {
+                    error(name, "A variável '" + index + "' do 'par for' não pode ser alterada no corpo.");
+                    return;
+                }
+                var reduction = operator.filter(op -> op.type() == TokenType.PLUS_EQUAL
+                        || op.type() == TokenType.STAR_EQUAL)
+                        .filter(_ -> TypeAlgebra.isNumericType(table.typeDefinition(variable.type())));
+                if (reduction.isEmpty()) {
+                    error(name, "O corpo de um 'par for' só pode alterar variáveis de fora do loop com '+=' ou '*=': '"
+                            + name.lexeme() + "'.");
+                    return;
+                }
+                var previous = reductions.putIfAbsent(name.lexeme(), new TypedExpr.Reduction(variable, reduction.get()));
+                if (previous != null && previous.operator().type() != reduction.get().type()) {
+                    error(name, "A redução '" + name.lexeme() + "' deve usar sempre o mesmo operador.");
+                }
+            }
+
+            @Override
+            protected void expr(TypedExpr expr) {
+                switch (expr) {
+                    case TypedExpr.BinaryExpression bin when AssignedVariables.isAssignment(bin.operator())
+                            && bin.left() instanceof TypedExpr.VariableExpression variable -> {
+                        write(variable, Optional.of(bin.operator()));
+                        expr(bin.right());
+                    }
+                    case TypedExpr.ReadExpression read -> {
+                        for (var variable : read.variables()) {
+                            if (variable instanceof TypedExpr.VariableExpression v) {
+                                write(v, Optional.empty());
+                            } else {
+                                expr(variable);
+                            }
+                        }
+                    }
+                    case TypedExpr.ReturnExpression _ -> {
+                        error(keyword, "'return' não pode ser usado no corpo de um 'par for'.");
+                        super.expr(expr);
+                    }
+                    case TypedExpr.VariableExpression variable -> reads.add(variable.name());
+                    default -> super.expr(expr);
+                }
+            }
+        }.expr(loop.body());
+
+        for (var read : reads) {
+            if (reductions.containsKey(read.lexeme())) {
+                error(read, "A redução '" + read.lexeme() + "' não pode ser lida no corpo do 'par for'.");
+            }
+        }
+        return new ArrayList<>(reductions.values());
+    }
+
+    private void error(Token token, String message) {
+        errors.add(new CompilerError(ErrorType.SEMANTIC, message, token.where()));
+    }
+}
@@ -7,7 +7,13 @@ public class SymbolTable {
     public record Id<T>(long id) {
     }
 
-    public record FunctionInfo(String name, Id<TypeInfo> type) {
+    /// `effects` é preenchido por `EffectAnalysis`; os das intrínsecas vêm de
+    /// `Intrinsics`, e as conversões e construtores de registros não têm
+    /// efeitos.
+    public record FunctionInfo(String name, Id<TypeInfo> type, Effects effects) {
+        public FunctionInfo(String name, Id<TypeInfo> type) {
+            this(name, type, Effects.NONE);
+        }
     }
 
     public record RecordInfo(String name, Id<TypeInfo> type) {
@@ -90,6 +96,10 @@ public class SymbolTable {
         return types().get(id).get().type();
     }
 
+    public Effects effects(Id<FunctionInfo> id) {
+        return functions().get(id).get().effects();
+    }
+
     public void printSymbolTable() {
         System.out.println("Tabela de Símbolos:");
         System.out.println("Funções:");
@@ -12,6 +12,10 @@ public sealed interface Type {
                     return "Range(" + args().get(0).toString() + ")";
                 case "[]":
                     return "[" + args().get(0).toString() + "]";
+                case "map":
+                    return "map[" + args().get(0).toString() + ", " + args().get(1).toString() + "]";
+                case "chan":
+                    return "chan[" + args().get(0).toString() + "]";
                 default: {
                     var sb = new StringBuilder(name);
                     if (!args.isEmpty()) {
@@ -160,6 +164,13 @@ public sealed interface Type {
                 var listA = (Named) a;
                 var listB = (Named) b;
                 return new Named("[]", List.of(lub(listA.args.get(0), listB.args.get(0))));
+            } else if (isMap(a) && isMap(b)) {
+                var mapA = (Named) a;
+                var mapB = (Named) b;
+                return new Named("map", List.of(lub(mapA.args.get(0), mapB.args.get(0)),
+                        lub(mapA.args.get(1), mapB.args.get(1))));
+            } else if (isChannel(a) && isChannel(b)) {
+                return new Named("chan", List.of(lub(((Named) a).args.get(0), ((Named) b).args.get(0))));
             } else {
                 return ANY;
             }
@@ -204,6 +215,13 @@ public sealed interface Type {
                 var listA = (Named) a;
                 var listB = (Named) b;
                 return new Named("[]", List.of(glb(listA.args.get(0), listB.args.get(0))));
+            } else if (isMap(a) && isMap(b)) {
+                var mapA = (Named) a;
+                var mapB = (Named) b;
+                return new Named("map", List.of(glb(mapA.args.get(0), mapB.args.get(0)),
+                        glb(mapA.args.get(1), mapB.args.get(1))));
+            } else if (isChannel(a) && isChannel(b)) {
+                return new Named("chan", List.of(glb(((Named) a).args.get(0), ((Named) b).args.get(0))));
             } else {
                 return NOTHING;
             }
@@ -251,6 +269,17 @@ public sealed interface Type {
                     // Verificar compatibilidade dos tipos de elementos da lista
                     return compatibleTypes(named1.args().get(0), named2.args().get(0));
                 }
+
+                // Mapas são compatíveis se as chaves e os valores forem
+                if (isMap(named1) && isMap(named2)) {
+                    return compatibleTypes(named1.args().get(0), named2.args().get(0))
+                            && compatibleTypes(named1.args().get(1), named2.args().get(1));
+                }
+
+                // Canais são compatíveis se os valores forem
+                if (isChannel(named1) && isChannel(named2)) {
+                    return compatibleTypes(named1.args().get(0), named2.args().get(0));
+                }
             }
 
             // Tipos incompatíveis por padrão
@@ -259,11 +288,26 @@ public sealed interface Type {
 
         public static boolean isIntegerType(Type type) {
             return type.equals(Type.I_LITERAL)
-                    || type instanceof Type.Named named && named.name().matches("i\\d+|u\\d+");
+                    || type instanceof Type.Named named && (sized(named.name(), 'i') || sized(named.name(), 'u'));
         }
 
         public static boolean isFloatType(Type type) {
-            return type instanceof Type.Named named && named.name().matches("f\\d+");
+            return type instanceof Type.Named named && sized(named.name(), 'f');
+        }
+
+        // `name` é `prefix` seguido de dígitos, como em `i32`. Usado a cada
+        // operação aritmética do interpretador, então não usa expressões
+        // regulares.
+        private static boolean sized(String name, char prefix) {
+            if (name.length() < 2 || name.charAt(0) != prefix) {
+                return false;
+            }
+            for (int i = 1; i < name.length(); i++) {
+                if (!Character.isDigit(name.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
         }
 
         public static boolean isNumericType(Type type) {
@@ -273,6 +317,14 @@ public sealed interface Type {
         public static boolean isList(Type t) {
             return t instanceof Named named && named.name.equals("[]");
         }
+
+        public static boolean isMap(Type t) {
+            return t instanceof Named named && named.name.equals("map") && named.args.size() == 2;
+        }
+
+        public static boolean isChannel(Type t) {
+            return t instanceof Named named && named.name.equals("chan") && named.args.size() == 1;
+        }
     }
 
 }
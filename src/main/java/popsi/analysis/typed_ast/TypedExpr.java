@@ -52,9 +52,29 @@ public sealed interface TypedExpr {
         }
 
         // Acesso a lista
+        // `checked` é falso quando a análise provou que o índice está dentro dos
+        // limites da lista, e o acesso pode ser feito sem verificação.
         public static record ListAccess(
                         TypedExpr target,
-                        TypedExpr place, Id<TypeInfo> type) implements TypedExpr {
+                        TypedExpr place,
+                        boolean checked,
+                        Id<TypeInfo> type) implements TypedExpr {
+        }
+
+        // Conversão numérica `T(value)` do prelúdio, com a truncagem ou extensão
+        // de sinal da largura de `type`
+        public static record Conversion(
+                        TypedExpr value,
+                        Id<TypeInfo> type) implements TypedExpr {
+        }
+
+        // Fatia `target[a..b]` de uma lista ou string, com os elementos de `a`
+        // (inclusive) a `b` (exclusive). A fatia de uma lista compartilha os
+        // elementos com ela.
+        public static record Slice(
+                        TypedExpr target,
+                        TypedExpr range,
+                        Id<TypeInfo> type) implements TypedExpr {
         }
 
         // Acesso a rec
@@ -63,6 +83,29 @@ public sealed interface TypedExpr {
                         Token place, Id<TypeInfo> type) implements TypedExpr {
         }
 
+        // Lista de registros guardada por colunas: cada campo dos registros fica em
+        // uma lista própria. Não existe na sintaxe: é produzida pela otimização
+        // quando os elementos são construídos em `list` e só acessados campo a campo.
+        public static record ColumnList(ListExpression list, Id<TypeInfo> type) implements TypedExpr {
+        }
+
+        // Acesso `target[place].field` a uma lista guardada por colunas: lê ou
+        // escreve diretamente a posição `place` da coluna `column`.
+        public static record ColumnAccess(
+                        TypedExpr target,
+                        TypedExpr place,
+                        Token field,
+                        int column,
+                        boolean checked,
+                        Id<TypeInfo> type) implements TypedExpr {
+        }
+
+        // Lista (`ListExpression` ou `ColumnList`) que não sobrevive à chamada de
+        // função que a criou, e pode ser alocada na região da chamada. Não existe
+        // na sintaxe: é produzida pela otimização.
+        public static record FrameLocal(TypedExpr value, Id<TypeInfo> type) implements TypedExpr {
+        }
+
         // Loop "for"
         public static record ForExpression(
                         Token variable, // Variável do loop
@@ -72,6 +115,37 @@ public sealed interface TypedExpr {
                         Id<TypeInfo> type) implements TypedExpr {
         }
 
+        // Loop "for" sem dependências entre iterações, que pode ser dividido entre
+        // várias threads. É produzido pela otimização, ou escrito como `par for`.
+        // `reductions` são as variáveis de fora do loop que só recebem `+=` ou `*=`
+        // no corpo; `minTrips` é o número mínimo de iterações para que o loop seja
+        // executado em paralelo. `vector` indica que o corpo só faz aritmética
+        // elemento a elemento sobre um único tipo numérico, e pode ser executado
+        // com instruções vetoriais.
+        public static record ParallelFor(
+                        ForExpression loop,
+                        List<Reduction> reductions,
+                        long minTrips,
+                        boolean vector,
+                        Id<TypeInfo> type) implements TypedExpr {
+        }
+
+        // Variável acumulada por um loop paralelo, e o operador que a acumula
+        public static record Reduction(VariableExpression variable, Token operator) {
+        }
+
+        // Loop "for" cuja variável fica na posição `slot` dos contadores do quadro,
+        // como um inteiro sem caixa, em vez de no mapa de variáveis. Não existe
+        // na sintaxe: é produzido pela otimização, e o corpo lê a variável com
+        // `Counter`.
+        public static record CountedFor(ForExpression loop, int slot, Id<TypeInfo> type) implements TypedExpr {
+        }
+
+        // Leitura da variável `name` de um `CountedFor`, na posição `slot` dos
+        // contadores do quadro
+        public static record Counter(Token name, int slot, Id<TypeInfo> type) implements TypedExpr {
+        }
+
         // Estrutura "if"
         public static record IfExpression(
                         TypedExpr condition, // Condição do `if`
@@ -91,6 +165,13 @@ public sealed interface TypedExpr {
         public static record ReturnExpression(Optional<TypedExpr> value, Id<TypeInfo> type) implements TypedExpr {
         }
 
+        // Chamada de uma função a si mesma em posição de cauda.
+        // Os argumentos estão na ordem dos parâmetros. Não existe na sintaxe: é
+        // produzida pela otimização e equivale a reatribuir os parâmetros e voltar
+        // ao início da função.
+        public static record TailCall(List<TypedExpr> arguments, Id<TypeInfo> type) implements TypedExpr {
+        }
+
         // Debug
         public static record DebugExpression(TypedExpr value, Id<TypeInfo> type) implements TypedExpr {
         }
@@ -98,6 +179,10 @@ public sealed interface TypedExpr {
         public static record ReadExpression(List<TypedExpr> variables, Id<TypeInfo> type) implements TypedExpr {
         }
 
+        // Spawn: a chamada é feita em uma nova tarefa, sem esperar o retorno
+        public static record SpawnExpression(FunctionCall call, Id<TypeInfo> type) implements TypedExpr {
+        }
+
         // Bloco -> "{" comando (";" comando)* ";"? "}"
         public static record Block(FilePosition start, List<TypedStmt> statements, Optional<TypedStmt> lastStatement,
                         Id<TypeInfo> type)
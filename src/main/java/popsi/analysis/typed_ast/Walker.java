@@ -0,0 +1,74 @@
+package popsi.analysis.typed_ast;
+
+/// Percorre a árvore tipada sem reconstruí-la.
+/// Usado pelas análises que apenas coletam informações sobre o programa.
+public abstract class Walker {
+    protected void stmt(TypedStmt stmt) {
+        switch (stmt) {
+            case TypedStmt.Declaration decl -> decl.value().ifPresent(this::expr);
+            case TypedStmt.ExpressionStatement exprStmt -> expr(exprStmt.expression());
+        }
+    }
+
+    protected void expr(TypedExpr expr) {
+        switch (expr) {
+            case TypedExpr.Literal _ -> {
+            }
+            case TypedExpr.VariableExpression _ -> {
+            }
+            case TypedExpr.Counter _ -> {
+            }
+            case TypedExpr.ListExpression list -> list.elements().forEach(this::expr);
+            case TypedExpr.BinaryExpression bin -> {
+                expr(bin.left());
+                expr(bin.right());
+            }
+            case TypedExpr.UnaryExpression un -> expr(un.operand());
+            case TypedExpr.FunctionCall call -> {
+                expr(call.target());
+                call.arguments().forEach(this::expr);
+            }
+            case TypedExpr.Argument arg -> expr(arg.value());
+            case TypedExpr.Conversion conversion -> expr(conversion.value());
+            case TypedExpr.ListAccess access -> {
+                expr(access.target());
+                expr(access.place());
+            }
+            case TypedExpr.Slice slice -> {
+                expr(slice.target());
+                expr(slice.range());
+            }
+            case TypedExpr.RecAccess rec -> expr(rec.target());
+            case TypedExpr.ColumnList columns -> expr(columns.list());
+            case TypedExpr.FrameLocal local -> expr(local.value());
+            case TypedExpr.ColumnAccess access -> {
+                expr(access.target());
+                expr(access.place());
+            }
+            case TypedExpr.ForExpression forExpr -> {
+                expr(forExpr.range());
+                expr(forExpr.body());
+            }
+            case TypedExpr.ParallelFor parallel -> expr(parallel.loop());
+            case TypedExpr.CountedFor counted -> expr(counted.loop());
+            case TypedExpr.IfExpression ifExpr -> {
+                expr(ifExpr.condition());
+                expr(ifExpr.thenBranch());
+                ifExpr.elseBranch().ifPresent(this::expr);
+            }
+            case TypedExpr.WhileExpression whileExpr -> {
+                expr(whileExpr.condition());
+                expr(whileExpr.body());
+            }
+            case TypedExpr.ReturnExpression ret -> ret.value().ifPresent(this::expr);
+            case TypedExpr.TailCall tailCall -> tailCall.arguments().forEach(this::expr);
+            case TypedExpr.DebugExpression debug -> expr(debug.value());
+            case TypedExpr.ReadExpression read -> read.variables().forEach(this::expr);
+            case TypedExpr.SpawnExpression spawn -> expr(spawn.call());
+            case TypedExpr.Block block -> {
+                block.statements().forEach(this::stmt);
+                block.lastStatement().ifPresent(this::stmt);
+            }
+        }
+    }
+}
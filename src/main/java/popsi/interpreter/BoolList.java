@@ -0,0 +1,182 @@
+package popsi.interpreter;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+import popsi.runtime.Copyable;
+
+/// Lista de `bool` guardada com um bit por elemento.
+///
+/// Elementos vizinhos dividem a mesma palavra, então as escritas são atômicas:
+/// um loop paralelo pode alterar posições diferentes ao mesmo tempo. Uma fatia
+/// usa as mesmas palavras da lista original, a partir do bit `base`.
+///
+/// Como em `NumericList`, `add` e `remove` mudam o tamanho pelo fim, dobrando
+/// o número de palavras quando elas acabam, e uma fatia que muda de tamanho
+/// passa a ter palavras próprias. Se a lista original diminui, acessar pela
+/// fatia os elementos que ficaram fora da lista é um erro de execução.
+final class BoolList extends AbstractList<Object> implements RandomAccess, Copyable<BoolList> {
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private long[] words;
+    private int base;
+    private int size;
+    // se `words` são da lista original de uma fatia
+    private boolean view;
+    // a lista dona das palavras de uma fatia
+    private BoolList owner;
+
+    BoolList(int size) {
+        this(new long[(size + 63) >>> 6], 0, size);
+    }
+
+    private BoolList(long[] words, int base, int size) {
+        this.words = words;
+        this.base = base;
+        this.size = size;
+    }
+
+    /// Lista vazia com espaço para `capacity` elementos.
+    static BoolList withCapacity(int capacity) {
+        return new BoolList(new long[(capacity + 63) >>> 6], 0, 0);
+    }
+
+    long[] words() {
+        return words;
+    }
+
+    int base() {
+        return base;
+    }
+
+    /// Os elementos de `from` (inclusive) a `to` (exclusive), sem cópia.
+    BoolList slice(int from, int to) {
+        var slice = new BoolList(words, base + from, to - from);
+        slice.view = true;
+        slice.owner = view ? owner : this;
+        return slice;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Object get(int index) {
+        if (view) {
+            live(index + 1);
+        }
+        var bit = base + index;
+        return (words[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    @Override
+    public Object set(int index, Object value) {
+        var previous = get(index);
+        var bit = base + index;
+        if ((Boolean) value) {
+            WORDS.getAndBitwiseOr(words, bit >>> 6, 1L << bit);
+        } else {
+            WORDS.getAndBitwiseAnd(words, bit >>> 6, ~(1L << bit));
+        }
+        return previous;
+    }
+
+    /// Número de elementos que cabem nas palavras atuais.
+    int capacity() {
+        return view ? size : words.length << 6;
+    }
+
+    // passa a guardar os elementos em palavras próprias, com espaço para
+    // `capacity` elementos
+    private void reserve(int capacity) {
+        var storage = new long[(capacity + 63) >>> 6];
+        if (base == 0) {
+            System.arraycopy(words, 0, storage, 0, (size + 63) >>> 6);
+            // os bits depois do último elemento são zero
+            if ((size & 63) != 0) {
+                storage[size >>> 6] &= (1L << size) - 1;
+            }
+        } else {
+            for (int i = 0; i < size; i++) {
+                if ((Boolean) get(i)) {
+                    storage[i >>> 6] |= 1L << i;
+                }
+            }
+        }
+        words = storage;
+        base = 0;
+        view = false;
+        owner = null;
+    }
+
+    // Falha se os primeiros `count` elementos da fatia não estão mais na
+    // lista dona das palavras, que diminuiu depois da criação da fatia.
+    private void live(int count) {
+        if (count > 0 && owner.words == words && base + count > owner.size) {
+            throw new SliceError(base + count - 1, owner.size);
+        }
+    }
+
+    @Override
+    public boolean add(Object value) {
+        if (size == capacity()) {
+            reserve(Math.max(64, 2 * size));
+        }
+        size++;
+        set(size - 1, value);
+        return true;
+    }
+
+    @Override
+    public Object remove(int index) {
+        Objects.checkIndex(index, size);
+        if (view) {
+            reserve(size);
+        }
+        var previous = get(index);
+        for (int i = index; i < size - 1; i++) {
+            set(i, get(i + 1));
+        }
+        // mantém zerados os bits depois do último elemento
+        set(size - 1, false);
+        size--;
+        return previous;
+    }
+
+    @Override
+    public BoolList copy() {
+        if (whole()) {
+            return new BoolList(words.clone(), 0, size);
+        }
+        var copy = new BoolList(size);
+        for (int i = 0; i < size; i++) {
+            copy.set(i, get(i));
+        }
+        return copy;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (other instanceof BoolList bools && whole() && bools.whole()) {
+            return size == bools.size && Arrays.equals(words, bools.words);
+        }
+        return super.equals(other);
+    }
+
+    // se as palavras guardam só esta lista, e os bits depois do último
+    // elemento são todos zero
+    private boolean whole() {
+        return base == 0 && words.length == (size + 63) >>> 6;
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+}
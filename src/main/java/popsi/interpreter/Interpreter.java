@@ -1,192 +1,1037 @@
 package popsi.interpreter;
-// package popsi;
-
-// import java.util.*;
-// import popsi.CompilerError.ErrorType;
-// import popsi.Token.TokenType;
-// import popsi.ast.*;
-// import popsi.ast.Ast.Function;
-// import popsi.ast.Ast.Parameter;
-// import popsi.ast.Ast.Program;
-// import popsi.ast.Ast.Rec;
-// import popsi.ast.Ast.Rec_field;
-// import popsi.ast.Expression.BinaryExpression;
-// import popsi.ast.Expression.Block;
-// import popsi.ast.Expression.DebugExpression;
-// import popsi.ast.Expression.ForExpression;
-// import popsi.ast.Expression.FunctionCall;
-// import popsi.ast.Expression.IfExpression;
-// import popsi.ast.Expression.ListAccess;
-// import popsi.ast.Expression.ListExpression;
-// import popsi.ast.Expression.Literal;
-// import popsi.ast.Expression.RangeExpression;
-// import popsi.ast.Expression.ReturnExpression;
-// import popsi.ast.Expression.UnaryExpression;
-// import popsi.ast.Expression.VariableExpression;
-// import popsi.ast.Expression.WhileExpression;
-// import popsi.ast.Statement.Declaration;
-// import popsi.ast.Statement.ExpressionStatement;
-// import popsi.InterpreterContext;
-
-// public class Interpreter {
-// private final InterpreterContext context;
-
-// public Interpreter() {
-// this.context = new InterpreterContext();
-// }
-
-// public Object interpret(Program program) {
-// // call the evaluate function for the Program node, this will recursively
-// // evaluate all the nodes in the AST
-// return evaluateProgram(program);
-// }
-
-// private Object evaluateProgram(Program program) {
-// for (Rec rec : program.records()) {
-// context.addRecord(rec.name().lexeme(), rec);
-// }
-
-// for (Function func : program.functions()) {
-// context.addFunction(func.name().lexeme(), func);
-// }
-// return null;
-// }
-
-// private void evaluateStatement(Statement stmt) {
-// if (stmt instanceof Declaration) {
-// evaluateDeclaration((Declaration) stmt);
-// } else if (stmt instanceof ExpressionStatement) {
-// evaluateExpression(((ExpressionStatement) stmt).expression());
-// }
-// }
-
-// private void evaluateDeclaration(Declaration stmt) {
-// String name = stmt.name().lexeme();
-// Object value = null;
-// if (stmt.value().isPresent()) {
-// value = evaluateExpression(stmt.value().get());
-// }
-// context.setVariable(name, value);
-// }
-
-// private Object evaluateExpression(Expression expr) {
-// if (expr instanceof Literal) {
-// return evaluateLiteral((Literal) expr);
-// } else if (expr instanceof VariableExpression) {
-// return evaluateVariable((VariableExpression) expr);
-// } else if (expr instanceof BinaryExpression) {
-// return evaluateBinaryExpression((BinaryExpression) expr);
-// } else if (expr instanceof UnaryExpression) {
-// return evaluateUnaryExpression((UnaryExpression) expr);
-// } else if (expr instanceof FunctionCall) {
-// return evaluateFunctionCall((FunctionCall) expr);
-// } else if (expr instanceof IfExpression) {
-// return evaluateIfExpression((IfExpression) expr);
-// } else if (expr instanceof Block) {
-// return evaluateBlock((Block) expr);
-// } else if (expr instanceof RangeExpression) {
-// return evaluateRangeExpression((RangeExpression) expr);
-// }
-// throw new RuntimeException("Unknown expression type: " +
-// expr.getClass().getName());
-// }
-
-// private Object evaluateLiteral(Literal literal) {
-// Token token = literal.value();
-// switch (token.type()) {
-// case INTEGER:
-// return Integer.parseInt(token.lexeme());
-// case FLOAT:
-// return Float.parseFloat(token.lexeme());
-// case STRING:
-// return token.lexeme();
-// case TRUE:
-// return true;
-// case FALSE:
-// return false;
-// default:
-// throw new RuntimeException("Unknown literal type: " + token.type());
-// }
-// }
-
-// private Object evaluateVariable(VariableExpression varExpr) {
-// return context.getVariable(varExpr.name().lexeme());
-// }
-
-// private Object evaluateBinaryExpression(BinaryExpression binExpr) {
-// Object left = evaluateExpression(binExpr.left());
-// Object right = evaluateExpression(binExpr.right());
-// Token operator = binExpr.operator();
-
-// switch (operator.type()) {
-// case PLUS:
-// return (int) left + (int) right;
-// case MINUS:
-// return (int) left - (int) right;
-// case STAR:
-// return (int) left * (int) right;
-// case SLASH:
-// return (int) left / (int) right;
-// case EQUAL_EQUAL:
-// return left.equals(right);
-// default:
-// throw new RuntimeException("Unknown binary operator: " + operator);
-// }
-// }
-
-// private Object evaluateUnaryExpression(UnaryExpression unaryExpr) {
-// Object operand = evaluateExpression(unaryExpr.operand());
-// Token operator = unaryExpr.operator();
-
-// switch (operator.type()) {
-// case MINUS:
-// return -(int) operand;
-// case BANG:
-// return !(boolean) operand;
-// default:
-// throw new RuntimeException("Unknown unary operator: " + operator);
-// }
-// }
-
-// /*
-// * private Object evaluateFunctionCall(FunctionCall funcCall) {
-// * Function function = context.getFunction(funcCall.target().toString());
-// * InterpreterContext localEnv = new InterpreterContext(); // New scope for
-// * function calls
-// *
-// * // Set parameters
-// * List<Expression> args = funcCall.arguments();
-// * for (int i = 0; i < args.size(); i++) {
-// * Object argValue = evaluateExpression(args.get(i));
-// * localEnv.defineVariable(args.get(i).toString(), argValue);
-// * }
-// *
-// * // Execute the function body
-// * Block body = function.getBody();
-// * for (Statement stmt : body.getStatements()) {
-// * evaluateStatement(stmt);
-// * }
-// *
-// * return null; // Return value (if any) can be handled here.
-// * }
-// */
-// private void evaluateIfExpression(IfExpression ifExpr) {
-// boolean condition = (boolean) evaluateExpression(ifExpr.condition());
-// if (condition) {
-// evaluateBlock(ifExpr.thenBranch());
-// } else if (ifExpr.elseBranch().isPresent()) {
-// evaluateBlock(ifExpr.elseBranch().get());
-// }
-// }
-
-// private void evaluateBlock(Block block) {
-// for (Statement stmt : block.statements()) {
-// evaluateStatement(stmt);
-// }
-// }
-
-// private Object evaluateRangeExpression(RangeExpression rangeExpr) {
-// // Implement range evaluation logic
-// return null; // Placeholder
-// }
-// }
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+import popsi.analysis.AssignedVariables;
+import popsi.analysis.SymbolTable;
+import popsi.analysis.SymbolTable.Id;
+import popsi.analysis.SymbolTable.TypeInfo;
+import popsi.analysis.Type;
+import popsi.analysis.Type.TypeAlgebra;
+import popsi.analysis.typed_ast.TypedAst;
+import popsi.analysis.typed_ast.TypedExpr;
+import popsi.analysis.typed_ast.TypedStmt;
+import popsi.analysis.typed_ast.Walker;
+import popsi.lexer.Token.TokenType;
+import popsi.optimizer.Calls;
+import popsi.runtime.IntrinsicError;
+import popsi.runtime.Intrinsics;
+import popsi.runtime.heap.Heap;
+import popsi.runtime.heap.HeapExhaustedError;
+import popsi.runtime.heap.Layout;
+import popsi.runtime.heap.Region;
+import popsi.runtime.io.Input;
+import popsi.runtime.io.Output;
+import popsi.runtime.map.IntMap;
+import popsi.runtime.map.PopsiMap;
+import popsi.runtime.task.Tasks;
+
+/// Interpretador de árvores tipadas.
+///
+/// Executa diretamente o programa produzido pelo analisador (e,
+/// opcionalmente, transformado pelo otimizador), enquanto não existe um
+/// gerador de código nativo.
+public class Interpreter {
+    /// Os loops vetorizáveis só usam a Vector API quando o módulo incubado foi
+    /// habilitado com `--add-modules jdk.incubator.vector`.
+    private static final boolean VECTOR = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private final SymbolTable table;
+    private final Heap heap;
+    private final Output output;
+    private final HashMap<String, TypedAst.Function> functions = new HashMap<>();
+    // funções que alocam listas na região da chamada
+    private final HashSet<String> regional = new HashSet<>();
+    // listas de fora de cada loop paralelo acessadas no corpo
+    private final IdentityHashMap<TypedExpr.ParallelFor, List<String>> parallelLists = new IdentityHashMap<>();
+    // os literais de string do programa, criados uma vez
+    private final HashMap<String, PopsiString> constants = new HashMap<>();
+    private final Input input = Input.STDIN;
+
+    /// Sinaliza um `return`. Não guarda a pilha: é apenas controle de fluxo.
+    private static final class Return extends RuntimeException {
+        final Object value;
+
+        Return(Object value) {
+            super(null, null, false, false);
+            this.value = value;
+        }
+    }
+
+    /// Sinaliza uma chamada em cauda: a função atual recomeça com novos argumentos.
+    private static final class TailCall extends RuntimeException {
+        final Object[] arguments;
+
+        TailCall(Object[] arguments) {
+            super(null, null, false, false);
+            this.arguments = arguments;
+        }
+    }
+
+    public Interpreter(TypedAst.Program program) {
+        this(program, Heap.unlimited());
+    }
+
+    public Interpreter(TypedAst.Program program, Heap heap) {
+        this(program, heap, Output.STDOUT);
+    }
+
+    /// `output` recebe o que o programa escreve com `debug`.
+    public Interpreter(TypedAst.Program program, Heap heap, Output output) {
+        this.table = program.table();
+        this.heap = heap;
+        this.output = output;
+        for (var function : program.functions()) {
+            functions.put(function.name().lexeme(), function);
+            new Walker() {
+                @Override
+                protected void expr(TypedExpr expr) {
+                    if (expr instanceof TypedExpr.FrameLocal) {
+                        regional.add(function.name().lexeme());
+                    } else if (expr instanceof TypedExpr.Literal literal
+                            && literal.value().type() == TokenType.STRING) {
+                        constants.computeIfAbsent((String) literal.value().literal(), PopsiString::of);
+                    } else if (expr instanceof TypedExpr.ParallelFor parallel) {
+                        parallelLists.put(parallel, outerLists(parallel.loop()));
+                    }
+                    super.expr(expr);
+                }
+            }.expr(function.body());
+        }
+    }
+
+    // nomes das listas acessadas em `v[i]` e `v[i].campo` no corpo do loop e
+    // declaradas fora dele
+    private static List<String> outerLists(TypedExpr.ForExpression loop) {
+        var declared = new HashSet<String>();
+        var accessed = new HashSet<String>();
+        declared.add(loop.variable().lexeme());
+        new Walker() {
+            @Override
+            protected void stmt(TypedStmt stmt) {
+                if (stmt instanceof TypedStmt.Declaration decl) {
+                    declared.add(decl.name().lexeme());
+                }
+                super.stmt(stmt);
+            }
+
+            @Override
+            protected void expr(TypedExpr expr) {
+                switch (expr) {
+                    case TypedExpr.ListAccess access when access.target() instanceof TypedExpr.VariableExpression v ->
+                        accessed.add(v.name().lexeme());
+                    case TypedExpr.ColumnAccess access when access.target() instanceof TypedExpr.VariableExpression v ->
+                        accessed.add(v.name().lexeme());
+                    case TypedExpr.ForExpression inner -> declared.add(inner.variable().lexeme());
+                    default -> {
+                    }
+                }
+                super.expr(expr);
+            }
+        }.expr(loop.body());
+        accessed.removeAll(declared);
+        return List.copyOf(accessed);
+    }
+
+    public boolean hasFunction(String name) {
+        return functions.containsKey(name);
+    }
+
+    /// Executa a função `main`.
+    public void run() {
+        call("main", List.of());
+    }
+
+    public Object call(String name, List<Object> arguments) {
+        var function = function(name, arguments.size());
+        var tasks = new Tasks();
+        try (var mutator = heap.attach()) {
+            return tasks.run(() -> call(function, arguments.toArray(), new InterpreterContext(tasks, mutator)));
+        } finally {
+            synchronized (output) {
+                output.flush();
+            }
+        }
+    }
+
+    /// Chama a função `name` com valores Java, convertidos para os tipos dos
+    /// parâmetros, e converte o resultado para Java (veja `JavaValues`). Várias
+    /// threads podem chamar funções do mesmo interpretador ao mesmo tempo.
+    public Object invoke(String name, Object... arguments) {
+        var function = function(name, arguments.length);
+        var values = new ArrayList<Object>(arguments.length);
+        for (int i = 0; i < arguments.length; i++) {
+            values.add(JavaValues.toPopsi(arguments[i], typeOf(function.parameters().get(i).type())));
+        }
+        var type = (Type.Function) typeOf(table.functions().get(function.function()).get().type());
+        return JavaValues.toJava(call(name, values), type.ret());
+    }
+
+    private TypedAst.Function function(String name, int arguments) {
+        var function = functions.get(name);
+        if (function == null) {
+            throw new RuntimeError("Função '" + name + "' não encontrada.");
+        }
+        if (function.parameters().size() != arguments) {
+            throw new RuntimeError("Número incorreto de argumentos para '" + name + "'. Esperado: "
+                    + function.parameters().size() + ", recebido: " + arguments);
+        }
+        return function;
+    }
+
+    private Object call(TypedAst.Function function, Object[] arguments, InterpreterContext context) {
+        var region = regional.contains(function.name().lexeme()) ? Region.current() : null;
+        // o quadro da chamada passa a ser o topo da pilha da thread
+        var caller = context.mutator().roots(context);
+        try {
+            while (true) {
+                var mark = region != null ? region.mark() : 0;
+                for (int i = 0; i < arguments.length; i++) {
+                    var parameter = function.parameters().get(i);
+                    context.setVariable(parameter.name().lexeme(),
+                            Numbers.coerce(arguments[i], table.typeDefinition(parameter.type())));
+                }
+
+                try {
+                    return evaluate(function.body(), context);
+                } catch (Return ret) {
+                    return ret.value;
+                } catch (TailCall tailCall) {
+                    // reaproveita o quadro atual em vez de empilhar outra chamada
+                    arguments = tailCall.arguments;
+                } finally {
+                    if (region != null) {
+                        region.release(mark);
+                    }
+                }
+            }
+        } finally {
+            context.mutator().roots(caller);
+        }
+    }
+
+    Type typeOf(TypedExpr expr) {
+        return table.typeDefinition(expr.type());
+    }
+
+    private Type typeOf(Id<TypeInfo> id) {
+        return table.typeDefinition(id);
+    }
+
+    private Object execute(TypedStmt stmt, InterpreterContext context) {
+        switch (stmt) {
+            case TypedStmt.Declaration decl: {
+                var type = typeOf(table.locals().get(decl.local()).get().type());
+                var value = decl.value().map(v -> Numbers.coerce(evaluate(v, context), type)).orElse(null);
+                context.setVariable(decl.name().lexeme(), value);
+                return value;
+            }
+            case TypedStmt.ExpressionStatement exprStmt: {
+                return evaluate(exprStmt.expression(), context);
+            }
+        }
+    }
+
+    Object evaluate(TypedExpr expr, InterpreterContext context) {
+        switch (expr) {
+            case TypedExpr.Literal literal: {
+                var token = literal.value();
+                return switch (token.type()) {
+                    case TokenType.INTEGER, TokenType.FLOAT -> token.literal();
+                    case TokenType.STRING -> constants.get((String) token.literal());
+                    case TokenType.CHAR -> ((String) token.literal()).codePointAt(0);
+                    case TokenType.TRUE -> true;
+                    case TokenType.FALSE -> false;
+                    default -> throw new RuntimeError("Literal inesperado: " + token.lexeme());
+                };
+            }
+
+            case TypedExpr.VariableExpression variable: {
+                return context.getVariable(variable.name().lexeme());
+            }
+
+            case TypedExpr.ListExpression list: {
+                return list(list, Optional.empty(), context);
+            }
+
+            case TypedExpr.BinaryExpression bin: {
+                return binary(bin, context);
+            }
+
+            case TypedExpr.UnaryExpression un: {
+                var operand = evaluate(un.operand(), context);
+                return switch (un.operator().type()) {
+                    case TokenType.BANG -> !(Boolean) operand;
+                    case TokenType.MINUS -> operand instanceof Double d
+                            ? Numbers.round(-d, typeOf(un))
+                            : (Object) Numbers.wrap(-(Long) operand, typeOf(un));
+                    case TokenType.HASH -> switch (operand) {
+                        case PopsiString s -> (long) s.length();
+                        case PopsiMap map -> (long) map.size();
+                        default -> (long) ((List<?>) operand).size();
+                    };
+                    default -> throw new RuntimeError("Operação unária não suportada: " + un.operator().lexeme());
+                };
+            }
+
+            case TypedExpr.FunctionCall call: {
+                var type = (Type.Function) typeOf(call.target());
+                var indices = Calls.parameterIndices(call, type);
+                var arguments = new Object[type.args().size()];
+                for (int i = 0; i < indices.length; i++) {
+                    arguments[indices[i]] = evaluate(call.arguments().get(i).value(), context);
+                }
+                return invoke(call, type, arguments, context);
+            }
+
+            case TypedExpr.Argument arg: {
+                return evaluate(arg.value(), context);
+            }
+
+            case TypedExpr.Conversion conversion: {
+                var value = evaluate(conversion.value(), context);
+                return Numbers.convert(value, typeOf(conversion.value()), typeOf(conversion));
+            }
+
+            case TypedExpr.ListAccess access: {
+                var target = evaluate(access.target(), context);
+                var index = index(access.place(), context);
+                if (target instanceof PopsiString s) {
+                    checkIndex(index, s.length());
+                    return s.codePointAt((int) index);
+                }
+                var list = (List<?>) target;
+                if (access.checked()) {
+                    checkIndex(index, list.size());
+                }
+                return list.get((int) index);
+            }
+
+            case TypedExpr.Slice slice: {
+                var target = evaluate(slice.target(), context);
+                var range = (RangeValue) evaluate(slice.range(), context);
+                if (target instanceof PopsiString s) {
+                    checkRange(range, s.length());
+                    return allocate(s.substring((int) range.start(), (int) range.end()), context);
+                }
+                @SuppressWarnings("unchecked")
+                var list = (List<Object>) target;
+                checkRange(range, list.size());
+                return Lists.slice(list, (int) range.start(), (int) range.end());
+            }
+
+            case TypedExpr.RecAccess rec: {
+                var record = (RecordValue) evaluate(rec.target(), context);
+                return record.get(record.type().fields().indexOf(rec.place().lexeme()));
+            }
+
+            case TypedExpr.ColumnList columns: {
+                return columns(columns, Optional.empty(), context);
+            }
+
+            case TypedExpr.FrameLocal local: {
+                return switch (local.value()) {
+                    case TypedExpr.ListExpression list -> list(list, Optional.of(Region.current()), context);
+                    case TypedExpr.ColumnList columns -> columns(columns, Optional.of(Region.current()), context);
+                    default -> evaluate(local.value(), context);
+                };
+            }
+
+            case TypedExpr.ColumnAccess access: {
+                var list = (RecordList) evaluate(access.target(), context);
+                var index = index(access.place(), context);
+                if (access.checked()) {
+                    checkIndex(index, list.size());
+                }
+                return list.column(access.column()).get((int) index);
+            }
+
+            case TypedExpr.ForExpression forExpr: {
+                var variable = forExpr.variable().lexeme();
+                count(forExpr.range(), context, i -> {
+                    context.setVariable(variable, i);
+                    evaluate(forExpr.body(), context);
+                });
+                return null;
+            }
+
+            case TypedExpr.CountedFor counted: {
+                var slot = counted.slot();
+                var body = counted.loop().body();
+                count(counted.loop().range(), context, i -> {
+                    context.setCounter(slot, i);
+                    evaluate(body, context);
+                });
+                return null;
+            }
+
+            case TypedExpr.Counter counter: {
+                return context.getCounter(counter.slot());
+            }
+
+            case TypedExpr.ParallelFor parallel: {
+                var range = (RangeValue) evaluate(parallel.loop().range(), context);
+                if (shifted(parallel, context)) {
+                    return evaluate(parallel.loop(), context);
+                }
+                if (parallel.vector() && VECTOR && VectorLoops.run(this, parallel, range, context)) {
+                    return null;
+                }
+                if (range.end() - range.start() < parallel.minTrips()) {
+                    return evaluate(parallel.loop(), context);
+                }
+                parallelFor(parallel, range, context);
+                return null;
+            }
+
+            case TypedExpr.IfExpression ifExpr: {
+                if ((Boolean) evaluate(ifExpr.condition(), context)) {
+                    return evaluate(ifExpr.thenBranch(), context);
+                } else if (ifExpr.elseBranch().isPresent()) {
+                    return evaluate(ifExpr.elseBranch().get(), context);
+                }
+                return null;
+            }
+
+            case TypedExpr.WhileExpression whileExpr: {
+                while ((Boolean) evaluate(whileExpr.condition(), context)) {
+                    evaluate(whileExpr.body(), context);
+                }
+                return null;
+            }
+
+            case TypedExpr.ReturnExpression ret: {
+                throw new Return(ret.value().map(v -> evaluate(v, context)).orElse(null));
+            }
+
+            case TypedExpr.TailCall tailCall: {
+                var arguments = new Object[tailCall.arguments().size()];
+                for (int i = 0; i < arguments.length; i++) {
+                    arguments[i] = evaluate(tailCall.arguments().get(i), context);
+                }
+                throw new TailCall(arguments);
+            }
+
+            case TypedExpr.DebugExpression debug: {
+                var value = evaluate(debug.value(), context);
+                synchronized (output) {
+                    print(value, typeOf(debug.value()), false);
+                    output.newline();
+                }
+                return value;
+            }
+
+            case TypedExpr.ReadExpression read: {
+                // as palavras de um `read` são lidas juntas, mesmo com outras
+                // tarefas lendo ao mesmo tempo
+                synchronized (input) {
+                    for (var variable : read.variables()) {
+                        var value = read(typeOf(variable));
+                        assign(variable, value instanceof PopsiString ? allocate(value, context) : value, context);
+                    }
+                }
+                return null;
+            }
+
+            case TypedExpr.SpawnExpression spawn: {
+                var call = spawn.call();
+                var type = (Type.Function) typeOf(call.target());
+                var indices = Calls.parameterIndices(call, type);
+                var arguments = new Object[type.args().size()];
+                for (int i = 0; i < indices.length; i++) {
+                    arguments[indices[i]] = evaluate(call.arguments().get(i).value(), context);
+                }
+                // a tarefa tem uma pilha própria, que não passa pelo quadro atual
+                var function = functions.get(Calls.calleeName(call).orElseThrow());
+                var tasks = context.tasks();
+                tasks.spawn(() -> {
+                    try (var mutator = heap.attach()) {
+                        call(function, arguments, new InterpreterContext(tasks, mutator));
+                    }
+                });
+                return null;
+            }
+
+            case TypedExpr.Block block: {
+                for (var stmt : block.statements()) {
+                    execute(stmt, context);
+                }
+                return block.lastStatement().map(stmt -> execute(stmt, context)).orElse(null);
+            }
+        }
+    }
+
+    /// Executa `iteration` para cada valor de `range`, em ordem. `for i in a..b`
+    /// conta de `a` a `b` sem criar o intervalo.
+    private void count(TypedExpr range, InterpreterContext context, LongConsumer iteration) {
+        long start, end;
+        if (range instanceof TypedExpr.BinaryExpression bin && bin.operator().type() == TokenType.DOT_DOT) {
+            start = (Long) evaluate(bin.left(), context);
+            end = (Long) evaluate(bin.right(), context);
+        } else {
+            var value = (RangeValue) evaluate(range, context);
+            start = value.start();
+            end = value.end();
+        }
+        for (long i = start; i < end; i++) {
+            iteration.accept(i);
+        }
+    }
+
+    // índice `v[i]`, lido direto do contador quando `i` é a variável de um loop
+    private long index(TypedExpr place, InterpreterContext context) {
+        if (place instanceof TypedExpr.Counter counter) {
+            return context.getCounter(counter.slot());
+        }
+        return (Long) evaluate(place, context);
+    }
+
+    /// Se o loop acessa duas fatias de uma mesma lista que começam em posições
+    /// diferentes. O otimizador considera `v[i]` e `w[i]` o mesmo elemento
+    /// quando `v` e `w` são a mesma lista, o que não vale para `v[1..n]` e
+    /// `v[0..n]`; nesse caso o loop é executado em ordem.
+    private boolean shifted(TypedExpr.ParallelFor parallel, InterpreterContext context) {
+        var names = parallelLists.get(parallel);
+        if (names.size() < 2) {
+            return false;
+        }
+        var lists = new ArrayList<List<Object>>(names.size());
+        for (var name : names) {
+            if (context.getVariable(name) instanceof List<?> list) {
+                @SuppressWarnings("unchecked")
+                var elements = (List<Object>) list;
+                lists.add(elements);
+            }
+        }
+        return Lists.shifted(lists);
+    }
+
+    /// Executa um loop paralelo. Cada bloco de iterações acumula as reduções a
+    /// partir do elemento neutro, e os resultados parciais são combinados na
+    /// ordem dos blocos.
+    private void parallelFor(TypedExpr.ParallelFor parallel, RangeValue range, InterpreterContext context) {
+        var loop = parallel.loop();
+        var variable = loop.variable().lexeme();
+        var reductions = parallel.reductions();
+
+        var partials = chunked(range, (from, to) -> {
+            try (var mutator = heap.attach()) {
+                var local = new InterpreterContext(context, mutator);
+                mutator.roots(local);
+                for (var reduction : reductions) {
+                    local.setVariable(reduction.variable().name().lexeme(), Numbers.coerce(
+                            reduction.operator().type() == TokenType.STAR_EQUAL ? 1L : 0L,
+                            typeOf(reduction.variable())));
+                }
+                for (long i = from; i < to; i++) {
+                    local.setVariable(variable, i);
+                    evaluate(loop.body(), local);
+                }
+                var partial = new Object[reductions.size()];
+                for (int r = 0; r < partial.length; r++) {
+                    partial[r] = local.getVariable(reductions.get(r).variable().name().lexeme());
+                }
+                return partial;
+            }
+        });
+
+        for (var partial : partials) {
+            for (int r = 0; r < partial.length; r++) {
+                var reduction = reductions.get(r);
+                var name = reduction.variable().name().lexeme();
+                var operator = reduction.operator().type() == TokenType.STAR_EQUAL ? TokenType.STAR
+                        : TokenType.PLUS;
+                context.setVariable(name, arithmetic(operator, context.getVariable(name), partial[r],
+                        typeOf(reduction.variable())));
+            }
+        }
+    }
+
+    /// Um bloco contíguo `[from, to)` das iterações de um loop.
+    interface Chunk<T> {
+        T run(long from, long to);
+    }
+
+    /// Divide `range` em blocos contíguos, executados no `ForkJoinPool` comum,
+    /// e retorna os resultados na ordem dos blocos.
+    static <T> List<T> chunked(RangeValue range, Chunk<T> chunk) {
+        var trips = range.end() - range.start();
+        var chunks = (int) Math.min(trips, ForkJoinPool.getCommonPoolParallelism() * 4L);
+        var tasks = new ArrayList<Callable<T>>(chunks);
+        for (int c = 0; c < chunks; c++) {
+            var from = range.start() + trips / chunks * c + Math.min(c, trips % chunks);
+            var to = from + trips / chunks + (c < trips % chunks ? 1 : 0);
+            tasks.add(() -> chunk.run(from, to));
+        }
+
+        try {
+            var results = new ArrayList<T>(chunks);
+            for (var result : ForkJoinPool.commonPool().invokeAll(tasks)) {
+                results.add(result.get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeError("Erro em loop paralelo: " + e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeError("Execução interrompida.");
+        }
+    }
+
+    /// Cria uma lista, na região da chamada quando `region` estiver presente.
+    @SuppressWarnings("unchecked")
+    private List<Object> list(TypedExpr.ListExpression list, Optional<Region> region, InterpreterContext context) {
+        var elementType = ((Type.Named) typeOf(list)).args().get(0);
+        var elements = Lists.create(elementType, list.elements().size(), region);
+        for (int i = 0; i < elements.size(); i++) {
+            elements.set(i, Numbers.coerce(evaluate(list.elements().get(i), context), elementType));
+        }
+        return (List<Object>) allocate(elements, context);
+    }
+
+    /// Cria uma lista guardada por colunas. Os argumentos do construtor de cada
+    /// elemento vão direto para as colunas, sem que o registro seja criado.
+    private RecordList columns(TypedExpr.ColumnList columns, Optional<Region> region, InterpreterContext context) {
+        var record = (Type.Record) ((Type.Named) typeOf(columns)).args().get(0);
+        var elements = columns.list().elements();
+        var list = new RecordList(record, elements.size(), region);
+        for (int row = 0; row < elements.size(); row++) {
+            var call = (TypedExpr.FunctionCall) elements.get(row);
+            var indices = Calls.parameterIndices(call, (Type.Function) typeOf(call.target()));
+            for (int i = 0; i < indices.length; i++) {
+                var field = indices[i];
+                var value = evaluate(call.arguments().get(i).value(), context);
+                list.column(field).set(row, Numbers.coerce(value, record.types().get(field)));
+            }
+        }
+        for (var column : list.columns()) {
+            allocate(column, context);
+        }
+        return (RecordList) allocate(list, context);
+    }
+
+    private Object invoke(TypedExpr.FunctionCall call, Type.Function type, Object[] arguments,
+            InterpreterContext context) {
+        var name = Calls.calleeName(call)
+                .orElseThrow(() -> new RuntimeError("O alvo da chamada não é uma função."));
+
+        var function = functions.get(name);
+        if (function != null) {
+            return call(function, arguments, InterpreterContext.calledFrom(context));
+        }
+
+        // construtor de registro
+        if (type.ret() instanceof Type.Record record && record.name().equals(name)) {
+            var fields = new Object[arguments.length];
+            for (int i = 0; i < fields.length; i++) {
+                fields[i] = Numbers.coerce(arguments[i], record.types().get(i));
+            }
+            return allocate(new RecordValue(record, fields), context);
+        }
+
+        // função do prelúdio implementada em Java
+        var intrinsic = Intrinsics.get(name);
+        if (intrinsic.isPresent()) {
+            // as listas e mapas alterados podem ganhar espaço, como em `push`
+            var mutated = intrinsic.get().effects().mutatedParameters();
+            var sizes = new long[mutated.isEmpty() ? 0 : arguments.length];
+            for (int i : mutated) {
+                sizes[i] = OBJECTS.sizeOf(arguments[i]);
+            }
+            Object result;
+            try {
+                result = Numbers.coerce(intrinsic.get().invoke(Lists::withCapacity, typeOf(call), arguments),
+                        typeOf(call));
+            } catch (IntrinsicError e) {
+                throw new RuntimeError(e.getMessage());
+            }
+            for (int i : mutated) {
+                grow(OBJECTS.sizeOf(arguments[i]) - sizes[i], context);
+            }
+            return result instanceof List || result instanceof PopsiMap ? allocate(result, context) : result;
+        }
+
+        // conversão numérica do prelúdio
+        if (type.args().equals(List.of(Type.NUMERIC))) {
+            var from = typeOf(call.arguments().get(0).value());
+            return Numbers.convert(arguments[0], from, type.ret());
+        }
+
+        throw new RuntimeError("Função '" + name + "' não encontrada.");
+    }
+
+    private Object binary(TypedExpr.BinaryExpression bin, InterpreterContext context) {
+        var operator = bin.operator().type();
+
+        // atribuições
+        if (AssignedVariables.isAssignment(bin.operator())) {
+            var value = evaluate(bin.right(), context);
+            if (operator != TokenType.EQUAL) {
+                var current = evaluate(bin.left(), context);
+                var arithmetic = switch (operator) {
+                    case TokenType.PLUS_EQUAL -> TokenType.PLUS;
+                    case TokenType.MINUS_EQUAL -> TokenType.MINUS;
+                    case TokenType.STAR_EQUAL -> TokenType.STAR;
+                    case TokenType.SLASH_EQUAL -> TokenType.SLASH;
+                    case TokenType.PERCENT_EQUAL -> TokenType.PERCENT;
+                    default -> TokenType.HAT;
+                };
+                value = arithmetic(arithmetic, current, value, typeOf(bin));
+                if (value instanceof PopsiString) {
+                    allocate(value, context);
+                }
+            }
+            return assign(bin.left(), value, context);
+        }
+
+        // operadores com curto-circuito
+        if (operator == TokenType.AND) {
+            return (Boolean) evaluate(bin.left(), context) && (Boolean) evaluate(bin.right(), context);
+        } else if (operator == TokenType.OR) {
+            return (Boolean) evaluate(bin.left(), context) || (Boolean) evaluate(bin.right(), context);
+        }
+
+        var left = evaluate(bin.left(), context);
+        var right = evaluate(bin.right(), context);
+        var operandType = TypeAlgebra.glb(typeOf(bin.left()), typeOf(bin.right()));
+
+        return switch (operator) {
+            case TokenType.DOT_DOT -> new RangeValue((Long) left, (Long) right);
+            case TokenType.EQUAL_EQUAL -> equal(left, right);
+            case TokenType.BANG_EQUAL -> !equal(left, right);
+            case TokenType.LESSER -> compare(left, right, operandType) < 0;
+            case TokenType.LESSER_EQUAL -> compare(left, right, operandType) <= 0;
+            case TokenType.GREATER -> compare(left, right, operandType) > 0;
+            case TokenType.GREATER_EQUAL -> compare(left, right, operandType) >= 0;
+            default -> {
+                var result = arithmetic(operator, left, right, typeOf(bin));
+                yield result instanceof PopsiString ? allocate(result, context) : result;
+            }
+        };
+    }
+
+    private Object arithmetic(TokenType operator, Object left, Object right, Type type) {
+        if (left instanceof PopsiString l && right instanceof PopsiString r && operator == TokenType.PLUS) {
+            return l.concat(r);
+        }
+
+        if (left instanceof Double || right instanceof Double || TypeAlgebra.isFloatType(type)) {
+            var l = Numbers.toDouble(left, type);
+            var r = Numbers.toDouble(right, type);
+            var result = switch (operator) {
+                case TokenType.PLUS -> l + r;
+                case TokenType.MINUS -> l - r;
+                case TokenType.STAR -> l * r;
+                case TokenType.SLASH -> l / r;
+                case TokenType.PERCENT -> l % r;
+                case TokenType.HAT -> Math.pow(l, r);
+                default -> throw new RuntimeError("Operação não suportada: " + operator);
+            };
+            return Numbers.round(result, type);
+        }
+
+        long l = (Long) left;
+        long r = (Long) right;
+        var unsigned = type.equals(Type.U64);
+        var result = switch (operator) {
+            case TokenType.PLUS -> l + r;
+            case TokenType.MINUS -> l - r;
+            case TokenType.STAR -> l * r;
+            case TokenType.SLASH -> {
+                if (r == 0) {
+                    throw new RuntimeError("Divisão por zero.");
+                }
+                yield unsigned ? Long.divideUnsigned(l, r) : l / r;
+            }
+            case TokenType.PERCENT -> {
+                if (r == 0) {
+                    throw new RuntimeError("Divisão por zero.");
+                }
+                yield unsigned ? Long.remainderUnsigned(l, r) : l % r;
+            }
+            case TokenType.HAT -> {
+                if (r < 0) {
+                    throw new RuntimeError("Expoente negativo em exponenciação inteira.");
+                }
+                long power = 1;
+                for (long i = 0; i < r; i++) {
+                    power = Numbers.wrap(power * l, type);
+                }
+                yield power;
+            }
+            default -> throw new RuntimeError("Operação não suportada: " + operator);
+        };
+        return Numbers.wrap(result, type);
+    }
+
+    private boolean equal(Object left, Object right) {
+        if (left instanceof Double || right instanceof Double) {
+            return left instanceof Number l && right instanceof Number r && l.doubleValue() == r.doubleValue();
+        }
+        return Objects.equals(left, right);
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(Object left, Object right, Type type) {
+        if (left instanceof Double || right instanceof Double) {
+            return Double.compare(((Number) left).doubleValue(), ((Number) right).doubleValue());
+        } else if (left instanceof Long l && right instanceof Long r) {
+            return type.equals(Type.U64) ? Long.compareUnsigned(l, r) : Long.compare(l, r);
+        }
+        return ((Comparable<Object>) left).compareTo(right);
+    }
+
+    /// Guarda um valor em um lugar atribuível e retorna o valor guardado.
+    @SuppressWarnings("unchecked")
+    private Object assign(TypedExpr place, Object value, InterpreterContext context) {
+        value = Numbers.coerce(value, typeOf(place));
+        switch (place) {
+            case TypedExpr.VariableExpression variable: {
+                context.setVariable(variable.name().lexeme(), value);
+                return value;
+            }
+            case TypedExpr.ListAccess access: {
+                var target = evaluate(access.target(), context);
+                var index = index(access.place(), context);
+                if (target instanceof PopsiString s) {
+                    // strings são valores: a string alterada é guardada de volta no alvo
+                    checkIndex(index, s.length());
+                    assign(access.target(), allocate(s.with((int) index, (Integer) value), context),
+                            context);
+                    return value;
+                }
+                var list = (List<Object>) target;
+                if (access.checked()) {
+                    checkIndex(index, list.size());
+                }
+                list.set((int) index, value);
+                return value;
+            }
+            case TypedExpr.RecAccess rec: {
+                var record = (RecordValue) evaluate(rec.target(), context);
+                record.set(record.type().fields().indexOf(rec.place().lexeme()), value);
+                return value;
+            }
+            case TypedExpr.ColumnAccess access: {
+                var list = (RecordList) evaluate(access.target(), context);
+                var index = index(access.place(), context);
+                if (access.checked()) {
+                    checkIndex(index, list.size());
+                }
+                list.column(access.column()).set((int) index, value);
+                return value;
+            }
+            default:
+                throw new RuntimeError("Expressão não atribuível.");
+        }
+    }
+
+    /// Registra no heap a alocação de uma lista, registro ou string.
+    private Object allocate(Object value, InterpreterContext context) {
+        try {
+            context.mutator().allocate(OBJECTS.sizeOf(value), OBJECTS);
+        } catch (HeapExhaustedError e) {
+            throw new RuntimeError(e.getMessage());
+        }
+        return value;
+    }
+
+    /// Registra no heap que um objeto alcançável passou a ocupar mais `bytes`
+    /// bytes.
+    private void grow(long bytes, InterpreterContext context) {
+        if (bytes <= 0) {
+            return;
+        }
+        try {
+            context.mutator().grow(bytes, OBJECTS);
+        } catch (HeapExhaustedError e) {
+            throw new RuntimeError(e.getMessage());
+        }
+    }
+
+    /// Os valores do interpretador vistos como objetos do heap. Nas listas que
+    /// não são `NumericList`, os números ocupam 8 bytes, já que são guardados
+    /// como `Long` e `Double`.
+    private static final Heap.Graph OBJECTS = new Heap.Graph() {
+        @Override
+        public long sizeOf(Object value) {
+            return switch (value) {
+                case NumericList list -> Layout.list(list.element(), list.capacity()).size();
+                case BoolList list -> Layout.bits(list.capacity()).size();
+                case RecordList list -> Layout.list(Type.ANY, list.columns().size()).size();
+                case List<?> list -> Layout.list(list.isEmpty() ? Type.ANY : elementType(list.get(0)),
+                        list.size()).size();
+                case RecordValue record -> Layout.of(record.type()).size();
+                case PopsiString s -> Layout.string(s.byteSize()).size();
+                case PopsiMap map -> Layout.table(map instanceof IntMap ? Long.BYTES : Layout.REFERENCE,
+                        map.capacity()).size();
+                default -> 0;
+            };
+        }
+
+        @Override
+        public void children(Object value, Consumer<Object> visit) {
+            switch (value) {
+                case NumericList _, BoolList _ -> {
+                }
+                case RecordList list -> list.columns().forEach(visit);
+                case List<?> list -> list.forEach(visit);
+                case RecordValue record -> {
+                    for (int i = 0; i < record.type().fields().size(); i++) {
+                        visit.accept(record.get(i));
+                    }
+                }
+                case PopsiMap map -> map.forEach((key, element) -> {
+                    visit.accept(key);
+                    visit.accept(element);
+                });
+                default -> {
+                }
+            }
+        }
+
+        private static Type elementType(Object element) {
+            return switch (element) {
+                case Boolean _ -> Type.BOOLEAN;
+                case Integer _ -> Type.CHAR;
+                case Long _ -> Type.I64;
+                case Double _ -> Type.F64;
+                default -> Type.ANY;
+            };
+        }
+    };
+
+    private void checkIndex(long index, int length) {
+        if (index < 0 || index >= length) {
+            throw new RuntimeError("Índice " + index + " fora dos limites (tamanho " + length + ").");
+        }
+    }
+
+    private void checkRange(RangeValue range, int length) {
+        if (range.start() < 0 || range.start() > range.end() || range.end() > length) {
+            throw new RuntimeError("Intervalo " + range.start() + ".." + range.end()
+                    + " fora dos limites (tamanho " + length + ").");
+        }
+    }
+
+    /// Lê da entrada o próximo valor do tipo `type`.
+    private Object read(Type type) {
+        if (!input.next()) {
+            throw new RuntimeError("Fim da entrada durante 'read'.");
+        }
+        try {
+            if (type.equals(Type.U64)) {
+                return input.readUnsigned();
+            } else if (TypeAlgebra.isIntegerType(type)) {
+                return Numbers.wrap(input.readLong(), type);
+            } else if (TypeAlgebra.isFloatType(type)) {
+                return Numbers.round(input.readDouble(), type);
+            } else if (type.equals(Type.BOOLEAN)) {
+                return input.readBoolean();
+            } else if (type.equals(Type.CHAR)) {
+                return input.readCodePoint();
+            } else if (type.equals(Type.STR)) {
+                return PopsiString.ofUtf8(input.word());
+            }
+            throw new NumberFormatException(new String(input.word(), StandardCharsets.UTF_8));
+        } catch (NumberFormatException e) {
+            throw new RuntimeError("Entrada '" + e.getMessage() + "' inválida para o tipo " + type + ".");
+        }
+    }
+
+    /// Escreve um valor na saída, na forma usada por `debug`. Dentro de listas
+    /// e registros (`nested`), strings e caracteres aparecem entre aspas.
+    private void print(Object value, Type type, boolean nested) {
+        switch (value) {
+            case null -> output.write("()");
+            case Long l when type.equals(Type.U64) -> output.writeUnsigned(l);
+            case Long l -> output.write((long) l);
+            case Double d when type.equals(Type.F32) -> output.write((float) (double) d);
+            case Double d -> output.write((double) d);
+            case Boolean b -> output.write((boolean) b);
+            case PopsiString s -> {
+                if (nested) {
+                    output.write((byte) '"');
+                }
+                output.write(s.bytes());
+                if (nested) {
+                    output.write((byte) '"');
+                }
+            }
+            case Integer c -> {
+                if (nested) {
+                    output.write((byte) '\'');
+                }
+                output.writeCodePoint(c);
+                if (nested) {
+                    output.write((byte) '\'');
+                }
+            }
+            case List<?> list -> {
+                var elementType = type instanceof Type.Named named && !named.args().isEmpty()
+                        ? named.args().get(0)
+                        : Type.ANY;
+                output.write((byte) '[');
+                for (int i = 0; i < list.size(); i++) {
+                    if (i > 0) {
+                        output.write(", ");
+                    }
+                    print(list.get(i), elementType, true);
+                }
+                output.write((byte) ']');
+            }
+            case RecordValue record -> {
+                var recordType = record.type();
+                output.write(recordType.name());
+                output.write(" { ");
+                for (int i = 0; i < recordType.fields().size(); i++) {
+                    if (i > 0) {
+                        output.write(", ");
+                    }
+                    output.write(recordType.fields().get(i));
+                    output.write(": ");
+                    print(record.get(i), recordType.types().get(i), true);
+                }
+                output.write(" }");
+            }
+            case PopsiMap map -> {
+                var keyType = TypeAlgebra.isMap(type) ? ((Type.Named) type).args().get(0) : Type.ANY;
+                var valueType = TypeAlgebra.isMap(type) ? ((Type.Named) type).args().get(1) : Type.ANY;
+                output.write((byte) '{');
+                var first = new boolean[] { true };
+                map.forEach((key, element) -> {
+                    if (!first[0]) {
+                        output.write(", ");
+                    }
+                    first[0] = false;
+                    // as chaves `char` são guardadas pelo código do caractere
+                    print(keyType.equals(Type.CHAR) ? (Object) (int) (long) (Long) key : key, keyType, true);
+                    output.write(": ");
+                    print(element, valueType, true);
+                });
+                output.write((byte) '}');
+            }
+            case RangeValue range -> {
+                output.write(range.start());
+                output.write("..");
+                output.write(range.end());
+            }
+            default -> output.write(value.toString());
+        }
+    }
+}
@@ -1,37 +1,105 @@
 package popsi.interpreter;
-// package popsi;
-
-// import java.util.*;
-// import popsi.ast.Ast.Function;
-// import popsi.ast.Ast.Rec;
-
-// public class InterpreterContext {
-// private final Map<String, Object> variables = new HashMap<>();
-// private final Map<String, Function> functions = new HashMap<>();
-// private final Map<String, Rec> records = new HashMap<>(); // Store record
-// definitions
-
-// public void setVariable(String name, Object value) {
-// variables.put(name, value);
-// }
-
-// public Object getVariable(String name) {
-// return variables.get(name);
-// }
-
-// public void addFunction(String name, Function function) {
-// functions.put(name, function);
-// }
-
-// public Function getFunction(String name) {
-// return functions.get(name);
-// }
-
-// public void addRecord(String name, Rec record) {
-// records.put(name, record);
-// }
-
-// public Record getRec(String name) {
-// return records.get(name);
-// }
-// }
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import popsi.runtime.heap.Heap;
+import popsi.runtime.task.Tasks;
+
+/// Quadro de uma chamada de função: os valores das variáveis locais.
+///
+/// O analisador proíbe que uma variável oculte outra, então um único mapa por
+/// chamada basta para todos os escopos do corpo da função.
+///
+/// Cada bloco de iterações de um loop paralelo usa um quadro próprio, que
+/// enxerga as variáveis do quadro da função (`enclosing`) mas guarda as suas
+/// localmente.
+///
+/// As variáveis dos loops `CountedFor` ficam fora do mapa, em um array de
+/// contadores indexado pela profundidade do loop.
+///
+/// Os quadros apontam para o quadro de quem os chamou (`caller`), formando a
+/// pilha de chamadas. O quadro do topo da pilha de cada thread são as raízes
+/// do seu `mutator` na contagem da memória viva.
+///
+/// Todos os quadros de uma execução compartilham as tarefas (`tasks`) criadas
+/// por `spawn` nela.
+public class InterpreterContext implements Heap.Roots {
+    private static final long[] NO_COUNTERS = {};
+
+    private final HashMap<String, Object> variables = new HashMap<>();
+    private long[] counters = NO_COUNTERS;
+    private final Optional<InterpreterContext> enclosing;
+    private final Optional<InterpreterContext> caller;
+    private final Tasks tasks;
+    private final Heap.Mutator mutator;
+
+    /// Quadro do início da pilha de uma thread.
+    public InterpreterContext(Tasks tasks, Heap.Mutator mutator) {
+        this(Optional.empty(), Optional.empty(), tasks, mutator);
+    }
+
+    /// Quadro de um bloco de um loop paralelo, executado por outra thread.
+    public InterpreterContext(InterpreterContext enclosing, Heap.Mutator mutator) {
+        this(Optional.of(enclosing), Optional.empty(), enclosing.tasks, mutator);
+    }
+
+    private InterpreterContext(Optional<InterpreterContext> enclosing, Optional<InterpreterContext> caller,
+            Tasks tasks, Heap.Mutator mutator) {
+        this.enclosing = enclosing;
+        this.caller = caller;
+        this.tasks = tasks;
+        this.mutator = mutator;
+    }
+
+    /// Quadro de uma função chamada a partir do quadro `caller`.
+    public static InterpreterContext calledFrom(InterpreterContext caller) {
+        return new InterpreterContext(Optional.empty(), Optional.of(caller), caller.tasks, caller.mutator);
+    }
+
+    public Tasks tasks() {
+        return tasks;
+    }
+
+    public Heap.Mutator mutator() {
+        return mutator;
+    }
+
+    public void setVariable(String name, Object value) {
+        variables.put(name, value);
+    }
+
+    public void setCounter(int slot, long value) {
+        if (slot >= counters.length) {
+            counters = Arrays.copyOf(counters, slot + 1);
+        }
+        counters[slot] = value;
+    }
+
+    public long getCounter(int slot) {
+        return counters[slot];
+    }
+
+    public Object getVariable(String name) {
+        if (variables.containsKey(name)) {
+            return variables.get(name);
+        } else if (enclosing.isPresent()) {
+            return enclosing.get().getVariable(name);
+        }
+        throw new RuntimeError("Variável '" + name + "' usada antes de receber um valor.");
+    }
+
+    /// Visita os valores das variáveis deste quadro e dos quadros abaixo dele
+    /// na pilha.
+    @Override
+    public void forEach(Consumer<Object> visit) {
+        for (var context = Optional.of(this); context.isPresent();) {
+            var current = context.get();
+            current.variables.values().forEach(visit);
+            current.enclosing.ifPresent(e -> e.forEach(visit));
+            context = current.caller;
+        }
+    }
+}
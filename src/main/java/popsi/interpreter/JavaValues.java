@@ -0,0 +1,112 @@
+package popsi.interpreter;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import popsi.analysis.Type;
+import popsi.analysis.Type.TypeAlgebra;
+import popsi.runtime.map.PopsiMap;
+
+/// Conversão entre valores Java e valores Popsi, usada por quem chama funções
+/// Popsi a partir de Java.
+///
+/// De Java para Popsi, um parâmetro inteiro aceita qualquer inteiro de Java
+/// (`Integer`, `Long`, ...), um de ponto flutuante aceita qualquer `Number`,
+/// `char` aceita um `Character` ou o código de um caractere em um `Integer`,
+/// `str` aceita `String`, uma lista aceita uma `List` ou um array, e tanto um
+/// `map[K, V]` quanto um registro aceitam um `Map` (o de um registro, com os
+/// nomes dos campos como chaves).
+///
+/// De Popsi para Java, os inteiros voltam como `Long` (os `u64`, com os bits
+/// do valor sem sinal), os números de ponto flutuante como `Double`, `char`
+/// como o código do caractere em um `Integer` (que nem sempre cabe em um
+/// `Character`), `str` como `String`, as listas como `List`, e os mapas e
+/// registros como `Map`, todos cópias que não compartilham nada com o
+/// programa.
+final class JavaValues {
+    private JavaValues() {
+    }
+
+    static Object toPopsi(Object value, Type type) {
+        if (TypeAlgebra.isIntegerType(type) && integral(value)) {
+            return Numbers.coerce(((Number) value).longValue(), type);
+        } else if (TypeAlgebra.isFloatType(type) && value instanceof Number number) {
+            return Numbers.coerce(number.doubleValue(), type);
+        } else if (type.equals(Type.BOOLEAN) && value instanceof Boolean) {
+            return value;
+        } else if (type.equals(Type.CHAR) && value instanceof Character c) {
+            return (int) c;
+        } else if (type.equals(Type.CHAR) && value instanceof Integer codePoint
+                && Character.isValidCodePoint(codePoint)) {
+            return codePoint;
+        } else if (type.equals(Type.STR) && value instanceof String string) {
+            return PopsiString.of(string);
+        } else if (type.equals(Type.UNIT) && value == null) {
+            return null;
+        } else if (TypeAlgebra.isList(type) && (value instanceof List || value != null && value.getClass().isArray())) {
+            var element = ((Type.Named) type).args().get(0);
+            var size = value instanceof List<?> list ? list.size() : Array.getLength(value);
+            var result = Lists.create(element, size);
+            for (int i = 0; i < size; i++) {
+                var item = value instanceof List<?> list ? list.get(i) : Array.get(value, i);
+                result.set(i, toPopsi(item, element));
+            }
+            return result;
+        } else if (TypeAlgebra.isMap(type) && value instanceof Map<?, ?> map) {
+            var args = ((Type.Named) type).args();
+            var result = PopsiMap.create(args.get(0));
+            map.forEach((key, element) -> result.put(toPopsi(key, args.get(0)), toPopsi(element, args.get(1))));
+            return result;
+        } else if (type instanceof Type.Record record && value instanceof Map<?, ?> map) {
+            var fields = new Object[record.fields().size()];
+            for (int i = 0; i < fields.length; i++) {
+                var name = record.fields().get(i);
+                if (!map.containsKey(name)) {
+                    throw new IllegalArgumentException("Falta o campo '" + name + "' do registro " + record.name() + ".");
+                }
+                fields[i] = toPopsi(map.get(name), record.types().get(i));
+            }
+            return new RecordValue(record, fields);
+        }
+        throw new IllegalArgumentException("Valor incompatível com o tipo " + type + ": " + value);
+    }
+
+    private static boolean integral(Object value) {
+        return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+    }
+
+    static Object toJava(Object value, Type type) {
+        return switch (value) {
+            case PopsiString string -> string.toString();
+            case List<?> list -> {
+                var element = TypeAlgebra.isList(type) ? ((Type.Named) type).args().get(0) : Type.ANY;
+                var result = new ArrayList<Object>(list.size());
+                for (var item : list) {
+                    result.add(toJava(item, element));
+                }
+                yield result;
+            }
+            case PopsiMap map -> {
+                var key = TypeAlgebra.isMap(type) ? ((Type.Named) type).args().get(0) : Type.ANY;
+                var element = TypeAlgebra.isMap(type) ? ((Type.Named) type).args().get(1) : Type.ANY;
+                var result = new LinkedHashMap<Object, Object>();
+                // as chaves `char` são guardadas pelo código do caractere
+                map.forEach((k, v) -> result.put(
+                        key.equals(Type.CHAR) ? (Object) (int) (long) (Long) k : toJava(k, key), toJava(v, element)));
+                yield result;
+            }
+            case RecordValue record -> {
+                var fields = record.type().fields();
+                var result = new LinkedHashMap<String, Object>();
+                for (int i = 0; i < fields.size(); i++) {
+                    result.put(fields.get(i), toJava(record.get(i), record.type().types().get(i)));
+                }
+                yield result;
+            }
+            case null, default -> value;
+        };
+    }
+}
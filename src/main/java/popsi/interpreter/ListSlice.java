@@ -0,0 +1,88 @@
+package popsi.interpreter;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/// Fatia de uma lista guardada como `ArrayList`: os elementos de `base` até
+/// `base + size` da lista original, sem cópia.
+///
+/// Ao mudar de tamanho, a fatia passa a guardar os elementos em uma
+/// `ArrayList` própria, sem alterar a lista original. Se a lista original
+/// diminui, acessar pela fatia os elementos que ficaram fora da lista é um
+/// erro de execução.
+final class ListSlice extends AbstractList<Object> implements RandomAccess {
+    private List<Object> list;
+    private int base;
+    private int size;
+    // se `list` é uma cópia própria da fatia
+    private boolean detached;
+
+    ListSlice(List<Object> list, int base, int size) {
+        this.list = list;
+        this.base = base;
+        this.size = size;
+    }
+
+    /// A lista que guarda os elementos.
+    List<Object> list() {
+        return list;
+    }
+
+    int base() {
+        return base;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Object get(int index) {
+        return list.get(position(index));
+    }
+
+    @Override
+    public Object set(int index, Object value) {
+        return list.set(position(index), value);
+    }
+
+    // posição do elemento `index` na lista original, que pode ter diminuído
+    // depois da criação da fatia
+    private int position(int index) {
+        var position = base + index;
+        if (position >= list.size()) {
+            throw new SliceError(position, list.size());
+        }
+        return position;
+    }
+
+    // copia os elementos para uma lista própria
+    private void detach() {
+        if (!detached) {
+            if (size > 0) {
+                position(size - 1);
+            }
+            list = new ArrayList<>(list.subList(base, base + size));
+            base = 0;
+            detached = true;
+        }
+    }
+
+    @Override
+    public boolean add(Object value) {
+        detach();
+        size++;
+        return list.add(value);
+    }
+
+    @Override
+    public Object remove(int index) {
+        detach();
+        var previous = list.remove(index);
+        size--;
+        return previous;
+    }
+}
@@ -0,0 +1,93 @@
+package popsi.interpreter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Optional;
+
+import popsi.analysis.Type;
+import popsi.runtime.heap.Region;
+
+/// Criação de listas com a representação escolhida pelo tipo dos elementos:
+/// `NumericList` para os números, `BoolList` para `bool` e `ArrayList` para
+/// os demais. As listas numéricas podem ser criadas na região da chamada atual.
+///
+/// As fatias de uma lista usam a mesma memória que ela.
+final class Lists {
+    private Lists() {
+    }
+
+    /// Uma lista com `size` elementos ainda não atribuídos.
+    static List<Object> create(Type element, int size) {
+        return create(element, size, Optional.empty());
+    }
+
+    static List<Object> create(Type element, int size, Optional<Region> region) {
+        var layout = NumericList.layout(element);
+        if (layout.isPresent()) {
+            var segment = region.flatMap(r -> r.allocate(layout.get().byteSize() * size,
+                    layout.get().byteAlignment()));
+            if (segment.isPresent()) {
+                return new NumericList(element, size, segment.get());
+            }
+            return new NumericList(element, size);
+        } else if (element.equals(Type.BOOLEAN)) {
+            return new BoolList(size);
+        }
+        return new ArrayList<>(Collections.nCopies(size, null));
+    }
+
+    /// Uma lista vazia com espaço para `capacity` elementos, que cresce com
+    /// `add`.
+    static List<Object> withCapacity(Type element, int capacity) {
+        if (NumericList.layout(element).isPresent()) {
+            return NumericList.withCapacity(element, capacity);
+        } else if (element.equals(Type.BOOLEAN)) {
+            return BoolList.withCapacity(capacity);
+        }
+        return new ArrayList<>(capacity);
+    }
+
+    /// Os elementos de `from` (inclusive) a `to` (exclusive) de `list`, sem
+    /// cópia: as alterações em um aparecem no outro.
+    static List<Object> slice(List<Object> list, int from, int to) {
+        return switch (list) {
+            case NumericList numeric -> numeric.slice(from, to);
+            case BoolList bools -> bools.slice(from, to);
+            case ListSlice slice -> new ListSlice(slice.list(), slice.base() + from, to - from);
+            default -> new ListSlice(list, from, to - from);
+        };
+    }
+
+    /// Se duas das listas usam a mesma memória a partir de posições
+    /// diferentes, como `v[0..n]` e `v[1..n]`: nesse caso `a[i]` e `b[i]` podem
+    /// ser elementos diferentes de uma mesma lista.
+    static boolean shifted(Collection<List<Object>> lists) {
+        var bases = new IdentityHashMap<Object, Integer>();
+        for (var list : lists) {
+            var base = switch (list) {
+                case NumericList numeric -> numeric.base();
+                case BoolList bools -> bools.base();
+                case ListSlice slice -> slice.base();
+                default -> 0;
+            };
+            var previous = bases.putIfAbsent(storage(list), base);
+            if (previous != null && previous != base) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // o objeto que guarda os elementos de uma lista
+    private static Object storage(List<Object> list) {
+        return switch (list) {
+            case NumericList numeric -> numeric.memory();
+            case BoolList bools -> bools.words();
+            case ListSlice slice -> slice.list();
+            default -> list;
+        };
+    }
+}
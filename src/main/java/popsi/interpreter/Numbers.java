@@ -0,0 +1,86 @@
+package popsi.interpreter;
+
+import popsi.analysis.Type;
+import popsi.analysis.Type.TypeAlgebra;
+
+/// Representação dos números de Popsi no interpretador.
+///
+/// Todos os inteiros são guardados em um `long` e todos os números de ponto
+/// flutuante em um `double`. Depois de cada operação, o resultado é ajustado à
+/// largura do tipo estático da expressão.
+///
+/// O otimizador usa `convert` para calcular conversões de constantes.
+public final class Numbers {
+    private Numbers() {
+    }
+
+    /// Trunca um inteiro para a largura do tipo, com extensão de sinal para os
+    /// tipos com sinal e de zeros para os sem sinal.
+    static long wrap(long value, Type type) {
+        if (type.equals(Type.I8)) {
+            return (byte) value;
+        } else if (type.equals(Type.I16)) {
+            return (short) value;
+        } else if (type.equals(Type.I32)) {
+            return (int) value;
+        } else if (type.equals(Type.U8)) {
+            return value & 0xFFL;
+        } else if (type.equals(Type.U16)) {
+            return value & 0xFFFFL;
+        } else if (type.equals(Type.U32)) {
+            return value & 0xFFFFFFFFL;
+        } else {
+            // i64, u64 e literais inteiros ocupam o long inteiro
+            return value;
+        }
+    }
+
+    /// Arredonda um número de ponto flutuante para a precisão do tipo.
+    static double round(double value, Type type) {
+        if (type.equals(Type.F32)) {
+            return (float) value;
+        }
+        return value;
+    }
+
+    /// Converte um valor numérico do tipo `from` para o tipo `to`.
+    public static Object convert(Object value, Type from, Type to) {
+        if (TypeAlgebra.isFloatType(to) || to.equals(Type.F_LITERAL)) {
+            return round(toDouble(value, from), to);
+        }
+
+        long integer;
+        if (value instanceof Double d) {
+            integer = to.equals(Type.U64) && d >= 0x1p63 ? (long) (d - 0x1p63) + Long.MIN_VALUE : (long) (double) d;
+        } else {
+            integer = (Long) value;
+        }
+        return wrap(integer, to);
+    }
+
+    static double toDouble(Object value, Type type) {
+        if (value instanceof Double d) {
+            return d;
+        }
+        long integer = (Long) value;
+        if (type.equals(Type.U64) && integer < 0) {
+            return (double) (integer >>> 1) * 2.0 + (integer & 1);
+        }
+        return integer;
+    }
+
+    /// Ajusta um valor ao tipo do lugar que o recebe. Literais inteiros podem
+    /// ser guardados em variáveis de ponto flutuante, por exemplo.
+    static Object coerce(Object value, Type to) {
+        if (value instanceof Long integer) {
+            if (TypeAlgebra.isFloatType(to)) {
+                return round(integer, to);
+            } else if (TypeAlgebra.isIntegerType(to)) {
+                return wrap(integer, to);
+            }
+        } else if (value instanceof Double d && to.equals(Type.F32)) {
+            return round(d, to);
+        }
+        return value;
+    }
+}
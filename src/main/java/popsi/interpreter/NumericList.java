@@ -0,0 +1,292 @@
+package popsi.interpreter;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.RandomAccess;
+
+import popsi.analysis.Type;
+import popsi.runtime.Copyable;
+import popsi.runtime.NumericArray;
+
+/// Lista de números guardada em um array primitivo ou fora do heap da JVM.
+///
+/// Cada elemento ocupa a largura do tipo dos elementos: um `[u8]` é guardado
+/// em um `byte[]`, um `[i32]` em um `int[]`, um `[f64]` em um `double[]`, e
+/// assim por diante. As listas com pelo menos `OFF_HEAP_BYTES` bytes são
+/// guardadas fora do heap da JVM, em memória liberada quando a lista deixa de
+/// ser alcançável, assim como as listas criadas na região de uma chamada. Em
+/// todos os casos os elementos são acessados por um `MemorySegment`.
+///
+/// Para o resto do interpretador é uma `List` comum: `get` retorna `Long` ou
+/// `Double`, como os outros valores numéricos.
+///
+/// Uma fatia (`slice`) usa a mesma memória da lista original, a partir do
+/// elemento `base`.
+///
+/// `add` e `remove` aumentam e diminuem a lista pelo fim. A memória pode ter
+/// espaço para mais elementos do que a lista tem; quando acaba, os elementos
+/// são copiados para uma memória com o dobro do espaço, então `n` acréscimos
+/// custam O(n) no total. Uma fatia não cresce sobre os elementos seguintes da
+/// lista original: ao mudar de tamanho, ela passa a ter uma memória própria.
+/// Se a lista original diminui, acessar pela fatia os elementos que ficaram
+/// fora da lista é um erro de execução.
+final class NumericList extends AbstractList<Object> implements RandomAccess, Copyable<NumericList>, NumericArray {
+    static final long OFF_HEAP_BYTES = 1 << 20;
+
+    private final Type element;
+    private final ValueLayout layout;
+    private Optional<Object> array;
+    private MemorySegment memory;
+    private MemorySegment segment;
+    private int base;
+    private int size;
+    // se `segment` é parte da memória de outra lista
+    private boolean view;
+    // a lista dona da memória de uma fatia
+    private NumericList owner;
+
+    NumericList(Type element, int size) {
+        this.element = element;
+        this.layout = layout(element).orElseThrow();
+        this.base = 0;
+        this.size = size;
+        if (layout.byteSize() * size >= OFF_HEAP_BYTES) {
+            this.array = Optional.empty();
+            this.memory = Arena.ofAuto().allocate(layout.byteSize() * size, layout.byteAlignment());
+        } else {
+            var array = switch (layout) {
+                case ValueLayout.OfByte _ -> new byte[size];
+                case ValueLayout.OfShort _ -> new short[size];
+                case ValueLayout.OfInt _ -> new int[size];
+                case ValueLayout.OfLong _ -> new long[size];
+                case ValueLayout.OfFloat _ -> new float[size];
+                default -> new double[size];
+            };
+            this.array = Optional.of(array);
+            this.memory = switch (array) {
+                case byte[] a -> MemorySegment.ofArray(a);
+                case short[] a -> MemorySegment.ofArray(a);
+                case int[] a -> MemorySegment.ofArray(a);
+                case long[] a -> MemorySegment.ofArray(a);
+                case float[] a -> MemorySegment.ofArray(a);
+                case double[] a -> MemorySegment.ofArray(a);
+                default -> throw new IllegalStateException();
+            };
+        }
+        this.segment = memory;
+    }
+
+    /// Lista guardada em `segment`, que deve ter o tamanho e o alinhamento dos
+    /// `size` elementos.
+    NumericList(Type element, int size, MemorySegment segment) {
+        this.element = element;
+        this.layout = layout(element).orElseThrow();
+        this.array = Optional.empty();
+        this.memory = segment;
+        this.segment = segment;
+        this.base = 0;
+        this.size = size;
+    }
+
+    private NumericList(NumericList list, int from, int to) {
+        this.element = list.element;
+        this.layout = list.layout;
+        this.array = list.array;
+        this.memory = list.memory;
+        this.segment = list.segment.asSlice(from * layout.byteSize(), (to - from) * layout.byteSize());
+        this.base = list.base + from;
+        this.size = to - from;
+        this.view = true;
+        this.owner = list.view ? list.owner : list;
+    }
+
+    /// Lista vazia com espaço para `capacity` elementos.
+    static NumericList withCapacity(Type element, int capacity) {
+        var list = new NumericList(element, capacity);
+        list.size = 0;
+        return list;
+    }
+
+    /// Disposição de um elemento do tipo, se for numérico.
+    static Optional<ValueLayout> layout(Type element) {
+        if (element.equals(Type.I8) || element.equals(Type.U8)) {
+            return Optional.of(ValueLayout.JAVA_BYTE);
+        } else if (element.equals(Type.I16) || element.equals(Type.U16)) {
+            return Optional.of(ValueLayout.JAVA_SHORT);
+        } else if (element.equals(Type.I32) || element.equals(Type.U32)) {
+            return Optional.of(ValueLayout.JAVA_INT);
+        } else if (element.equals(Type.I64) || element.equals(Type.U64)) {
+            return Optional.of(ValueLayout.JAVA_LONG);
+        } else if (element.equals(Type.F32)) {
+            return Optional.of(ValueLayout.JAVA_FLOAT);
+        } else if (element.equals(Type.F64)) {
+            return Optional.of(ValueLayout.JAVA_DOUBLE);
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public Type element() {
+        return element;
+    }
+
+    @Override
+    public MemorySegment segment() {
+        if (view) {
+            live(size);
+        }
+        return segment;
+    }
+
+    /// A memória que guarda os elementos, compartilhada pelas fatias.
+    MemorySegment memory() {
+        return memory;
+    }
+
+    @Override
+    public Optional<Object> array() {
+        if (view) {
+            live(size);
+        }
+        return array;
+    }
+
+    @Override
+    public int base() {
+        return base;
+    }
+
+    /// Os elementos de `from` (inclusive) a `to` (exclusive), sem cópia.
+    NumericList slice(int from, int to) {
+        return new NumericList(this, from, to);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /// Número de elementos que cabem na memória atual.
+    int capacity() {
+        return view ? size : (int) (segment.byteSize() / layout.byteSize());
+    }
+
+    // passa a guardar os elementos em uma memória própria com espaço para
+    // `capacity` elementos
+    private void reserve(int capacity) {
+        var storage = new NumericList(element, capacity);
+        MemorySegment.copy(segment, 0, storage.segment, 0, size * layout.byteSize());
+        array = storage.array;
+        memory = storage.memory;
+        segment = storage.segment;
+        base = 0;
+        view = false;
+        owner = null;
+    }
+
+    // Falha se os primeiros `count` elementos da fatia não estão mais na
+    // lista dona da memória, que diminuiu depois da criação da fatia. Se a
+    // dona cresceu para outra memória, a fatia ficou com a memória antiga,
+    // que é só dela.
+    private void live(int count) {
+        if (count > 0 && owner.memory == memory && base + count > owner.size) {
+            throw new SliceError(base + count - 1, owner.size);
+        }
+    }
+
+    @Override
+    public boolean add(Object value) {
+        if (size == capacity()) {
+            reserve(Math.max(4, 2 * size));
+        }
+        size++;
+        set(size - 1, value);
+        return true;
+    }
+
+    @Override
+    public Object remove(int index) {
+        Objects.checkIndex(index, size);
+        if (view) {
+            reserve(size);
+        }
+        var previous = get(index);
+        var width = layout.byteSize();
+        MemorySegment.copy(segment, (index + 1) * width, segment, index * width, (size - index - 1) * width);
+        size--;
+        return previous;
+    }
+
+    @Override
+    public Object get(int index) {
+        if (view) {
+            live(index + 1);
+        }
+        return switch (layout) {
+            case ValueLayout.OfByte l -> Numbers.wrap(segment.getAtIndex(l, index), element);
+            case ValueLayout.OfShort l -> Numbers.wrap(segment.getAtIndex(l, index), element);
+            case ValueLayout.OfInt l -> Numbers.wrap(segment.getAtIndex(l, index), element);
+            case ValueLayout.OfLong l -> segment.getAtIndex(l, index);
+            case ValueLayout.OfFloat l -> (double) segment.getAtIndex(l, index);
+            case ValueLayout.OfDouble l -> segment.getAtIndex(l, index);
+            default -> throw new IllegalStateException();
+        };
+    }
+
+    @Override
+    public Object set(int index, Object value) {
+        var previous = get(index);
+        var number = (Number) value;
+        switch (layout) {
+            case ValueLayout.OfByte l -> segment.setAtIndex(l, index, number.byteValue());
+            case ValueLayout.OfShort l -> segment.setAtIndex(l, index, number.shortValue());
+            case ValueLayout.OfInt l -> segment.setAtIndex(l, index, number.intValue());
+            case ValueLayout.OfLong l -> segment.setAtIndex(l, index, number.longValue());
+            case ValueLayout.OfFloat l -> segment.setAtIndex(l, index, number.floatValue());
+            case ValueLayout.OfDouble l -> segment.setAtIndex(l, index, number.doubleValue());
+            default -> throw new IllegalStateException();
+        }
+        return previous;
+    }
+
+    @Override
+    public NumericList copy() {
+        if (view) {
+            live(size);
+        }
+        var copy = new NumericList(element, size);
+        MemorySegment.copy(segment, 0, copy.segment, 0, size * layout.byteSize());
+        return copy;
+    }
+
+    /// Cópia de uma lista com elementos do tipo `element`.
+    static NumericList copyOf(List<?> list, Type element) {
+        var copy = new NumericList(element, list.size());
+        for (int i = 0; i < list.size(); i++) {
+            copy.set(i, list.get(i));
+        }
+        return copy;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        // listas de inteiros do mesmo tipo são iguais se tiverem os mesmos bytes
+        if (other instanceof NumericList numeric && numeric.element.equals(element)
+                && !(layout instanceof ValueLayout.OfFloat || layout instanceof ValueLayout.OfDouble)) {
+            return size == numeric.size
+                    && segment.asSlice(0, size * layout.byteSize())
+                            .mismatch(numeric.segment.asSlice(0, size * layout.byteSize())) == -1;
+        }
+        return super.equals(other);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+}
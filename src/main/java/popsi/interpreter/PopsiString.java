@@ -0,0 +1,151 @@
+package popsi.interpreter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import popsi.runtime.io.Utf8;
+
+/// Valor do tipo `str`: os bytes da string em UTF-8.
+///
+/// O número de caracteres (`#s`) é contado uma vez, na criação, e o hash é
+/// calculado no primeiro uso e guardado. As posições de `s[i]` contam
+/// caracteres, não bytes; em strings só com caracteres ASCII cada caractere
+/// ocupa um byte, e a posição é acessada diretamente. Nas outras, o primeiro
+/// acesso por posição guarda onde começa um a cada `STRIDE` caracteres, e os
+/// acessos seguintes percorrem no máximo `STRIDE - 1` caracteres.
+///
+/// Strings são valores: as operações retornam uma string nova.
+public final class PopsiString implements Comparable<PopsiString> {
+    private static final int STRIDE = 32;
+
+    private final byte[] bytes;
+    private final int length;
+    private int hash;
+    // posição do primeiro byte dos caracteres 0, STRIDE, 2 * STRIDE, ...
+    private volatile int[] offsets;
+
+    private PopsiString(byte[] bytes, int length) {
+        this.bytes = bytes;
+        this.length = length;
+    }
+
+    public static PopsiString of(String string) {
+        return new PopsiString(string.getBytes(StandardCharsets.UTF_8), string.codePointCount(0, string.length()));
+    }
+
+    /// String com os bytes `bytes`, que devem estar em UTF-8 válido.
+    static PopsiString ofUtf8(byte[] bytes) {
+        var length = 0;
+        for (int i = 0; i < bytes.length; i += Utf8.sequence(bytes[i] & 0xFF)) {
+            if (Utf8.decode(bytes, i, bytes.length) == Utf8.INVALID) {
+                throw new RuntimeError("Texto com UTF-8 inválido na posição " + i + ".");
+            }
+            length++;
+        }
+        return new PopsiString(bytes, length);
+    }
+
+    /// Número de caracteres.
+    public int length() {
+        return length;
+    }
+
+    /// Número de bytes em UTF-8.
+    public int byteSize() {
+        return bytes.length;
+    }
+
+    // os bytes da string, sem cópia; não devem ser alterados
+    byte[] bytes() {
+        return bytes;
+    }
+
+    /// O caractere na posição `index`.
+    public int codePointAt(int index) {
+        return Utf8.decode(bytes, offset(index), bytes.length);
+    }
+
+    public PopsiString concat(PopsiString other) {
+        var result = Arrays.copyOf(bytes, bytes.length + other.bytes.length);
+        System.arraycopy(other.bytes, 0, result, bytes.length, other.bytes.length);
+        return new PopsiString(result, length + other.length);
+    }
+
+    /// Os caracteres de `from` (inclusive) a `to` (exclusive).
+    public PopsiString substring(int from, int to) {
+        var start = offset(from);
+        return new PopsiString(Arrays.copyOfRange(bytes, start, offset(to)), to - from);
+    }
+
+    /// A string com o caractere da posição `index` trocado por `codePoint`.
+    public PopsiString with(int index, int codePoint) {
+        var start = offset(index);
+        var end = start + Utf8.sequence(bytes[start] & 0xFF);
+        var replacement = Character.toString(codePoint).getBytes(StandardCharsets.UTF_8);
+        var result = new byte[bytes.length - (end - start) + replacement.length];
+        System.arraycopy(bytes, 0, result, 0, start);
+        System.arraycopy(replacement, 0, result, start, replacement.length);
+        System.arraycopy(bytes, end, result, start + replacement.length, bytes.length - end);
+        return new PopsiString(result, length);
+    }
+
+    // posição do primeiro byte do caractere `index`
+    private int offset(int index) {
+        if (length == bytes.length) {
+            return index;
+        }
+        var offsets = this.offsets;
+        if (offsets == null) {
+            offsets = offsets();
+            this.offsets = offsets;
+        }
+        int offset = offsets[index / STRIDE];
+        for (int i = index % STRIDE; i > 0; i--) {
+            offset += Utf8.sequence(bytes[offset] & 0xFF);
+        }
+        return offset;
+    }
+
+    private int[] offsets() {
+        var offsets = new int[length / STRIDE + 1];
+        int offset = 0;
+        for (int i = 0; i <= length; i++) {
+            if (i % STRIDE == 0) {
+                offsets[i / STRIDE] = offset;
+            }
+            if (i < length) {
+                offset += Utf8.sequence(bytes[offset] & 0xFF);
+            }
+        }
+        return offsets;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        return other instanceof PopsiString string && length == string.length
+                && (hash == 0 || string.hash == 0 || hash == string.hash)
+                && Arrays.equals(bytes, string.bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        if (hash == 0) {
+            hash = Arrays.hashCode(bytes);
+        }
+        return hash;
+    }
+
+    /// Ordem dos caracteres: em UTF-8 é a mesma ordem dos bytes sem sinal.
+    @Override
+    public int compareTo(PopsiString other) {
+        return Arrays.compareUnsigned(bytes, other.bytes);
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,8 @@
+package popsi.interpreter;
+
+/// Valor de um intervalo `start..end`. O fim é exclusivo.
+///
+/// Só é criado quando o intervalo é usado como valor: um `for i in a..b`
+/// conta diretamente de `a` a `b`.
+public record RangeValue(long start, long end) {
+}
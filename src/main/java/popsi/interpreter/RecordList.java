@@ -0,0 +1,57 @@
+package popsi.interpreter;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.RandomAccess;
+
+import popsi.analysis.Type;
+import popsi.runtime.heap.Region;
+
+/// Lista de registros guardada por colunas: o campo `k` de todos os registros
+/// fica na coluna `k`, com a representação escolhida pelo tipo do campo (um
+/// `[f64]` para um campo `f64`, por exemplo).
+///
+/// Só é usada para listas cujos registros nunca são vistos inteiros; `get`
+/// existe para satisfazer `List` e devolve uma cópia do registro.
+final class RecordList extends AbstractList<Object> implements RandomAccess {
+    private final Type.Record type;
+    private final List<List<Object>> columns;
+    private final int size;
+
+    RecordList(Type.Record type, int size, Optional<Region> region) {
+        this.type = type;
+        this.columns = new ArrayList<>(type.types().size());
+        for (var field : type.types()) {
+            columns.add(Lists.create(field, size, region));
+        }
+        this.size = size;
+    }
+
+    Type.Record type() {
+        return type;
+    }
+
+    List<List<Object>> columns() {
+        return columns;
+    }
+
+    List<Object> column(int field) {
+        return columns.get(field);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Object get(int index) {
+        var fields = new Object[columns.size()];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = columns.get(i).get(index);
+        }
+        return new RecordValue(type, fields);
+    }
+}
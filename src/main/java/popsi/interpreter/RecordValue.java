@@ -0,0 +1,39 @@
+package popsi.interpreter;
+
+import java.util.Arrays;
+
+import popsi.analysis.Type;
+
+/// Instância de um `rec`. Os campos seguem a ordem de `Type.Record.fields()`.
+public final class RecordValue {
+    private final Type.Record type;
+    private final Object[] fields;
+
+    public RecordValue(Type.Record type, Object[] fields) {
+        this.type = type;
+        this.fields = fields;
+    }
+
+    public Type.Record type() {
+        return type;
+    }
+
+    public Object get(int field) {
+        return fields[field];
+    }
+
+    public void set(int field, Object value) {
+        fields[field] = value;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof RecordValue record && type.equals(record.type)
+                && Arrays.equals(fields, record.fields);
+    }
+
+    @Override
+    public int hashCode() {
+        return type.hashCode() * 31 + Arrays.hashCode(fields);
+    }
+}
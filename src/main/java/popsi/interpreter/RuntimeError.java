@@ -0,0 +1,8 @@
+package popsi.interpreter;
+
+/// Erro encontrado durante a execução de um programa Popsi.
+public class RuntimeError extends RuntimeException {
+    public RuntimeError(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,9 @@
+package popsi.interpreter;
+
+/// Acesso por uma fatia a um elemento que não está mais na lista original,
+/// que diminuiu depois da criação da fatia.
+public class SliceError extends RuntimeError {
+    public SliceError(int position, int size) {
+        super("A fatia usa o elemento " + position + " da lista original, que agora tem tamanho " + size + ".");
+    }
+}
@@ -0,0 +1,439 @@
+package popsi.interpreter;
+
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.Vector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import popsi.analysis.AssignedVariables;
+import popsi.analysis.Type;
+import popsi.analysis.typed_ast.TypedExpr;
+import popsi.analysis.typed_ast.TypedStmt;
+import popsi.analysis.typed_ast.Walker;
+import popsi.lexer.Token.TokenType;
+
+/// Execução dos loops marcados como vetorizáveis com a Vector API.
+///
+/// Os vetores são lidos e escritos diretamente no array ou no segmento de
+/// memória de cada lista acessada no corpo (uma `NumericList`), e cada grupo
+/// de iterações vira uma operação sobre vetores com uma posição ("lane") por
+/// iteração. Os `if` do corpo viram máscaras.
+///
+/// As iterações que sobram no final de cada bloco, por não completarem um
+/// vetor, são executadas pelo interpretador depois que as listas alteradas
+/// foram atualizadas.
+///
+/// Esta classe só é carregada quando o módulo `jdk.incubator.vector` está
+/// disponível.
+final class VectorLoops {
+    private VectorLoops() {
+    }
+
+    /// Executa o loop e retorna verdadeiro, ou retorna falso sem executar nada
+    /// quando o intervalo sai dos limites de alguma lista; nesse caso o loop
+    /// deve ser executado normalmente, para que o erro seja reportado.
+    static boolean run(Interpreter interpreter, TypedExpr.ParallelFor parallel, RangeValue range,
+            InterpreterContext context) {
+        return new Kernel<>(interpreter, parallel, context).run(range);
+    }
+
+    // resultado de um bloco: as reduções acumuladas e as iterações que sobraram
+    private record Partial(long[] sums, long tailFrom, long tailTo) {
+    }
+
+    private static final class Kernel<E> {
+        private final Interpreter interpreter;
+        private final TypedExpr.ParallelFor parallel;
+        private final TypedExpr.ForExpression loop;
+        private final InterpreterContext context;
+        private final Type lane;
+        private final VectorSpecies<E> species;
+
+        private final HashMap<String, NumericList> lists = new HashMap<>();
+        private final HashMap<String, Vector<E>> invariants = new HashMap<>();
+        private final HashMap<String, Integer> reductions = new HashMap<>();
+
+        Kernel(Interpreter interpreter, TypedExpr.ParallelFor parallel, InterpreterContext context) {
+            this.interpreter = interpreter;
+            this.parallel = parallel;
+            this.loop = parallel.loop();
+            this.context = context;
+
+            var types = new ArrayList<Type>();
+            new Walker() {
+                @Override
+                protected void expr(TypedExpr expr) {
+                    if (expr instanceof TypedExpr.ListAccess access) {
+                        types.add(interpreter.typeOf(access));
+                    }
+                    super.expr(expr);
+                }
+            }.expr(loop.body());
+            this.lane = types.getFirst();
+            this.species = species(lane);
+
+            for (int r = 0; r < parallel.reductions().size(); r++) {
+                reductions.put(parallel.reductions().get(r).variable().name().lexeme(), r);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <E> VectorSpecies<E> species(Type lane) {
+            VectorSpecies<?> species;
+            if (lane.equals(Type.I8) || lane.equals(Type.U8)) {
+                species = ByteVector.SPECIES_PREFERRED;
+            } else if (lane.equals(Type.I16) || lane.equals(Type.U16)) {
+                species = ShortVector.SPECIES_PREFERRED;
+            } else if (lane.equals(Type.I32) || lane.equals(Type.U32)) {
+                species = IntVector.SPECIES_PREFERRED;
+            } else if (lane.equals(Type.I64) || lane.equals(Type.U64)) {
+                species = LongVector.SPECIES_PREFERRED;
+            } else if (lane.equals(Type.F32)) {
+                species = FloatVector.SPECIES_PREFERRED;
+            } else {
+                species = DoubleVector.SPECIES_PREFERRED;
+            }
+            return (VectorSpecies<E>) species;
+        }
+
+        @SuppressWarnings("unchecked")
+        boolean run(RangeValue range) {
+            if (range.start() >= range.end()) {
+                return false;
+            }
+
+            var index = loop.variable().lexeme();
+            var declared = new HashSet<String>();
+            var accessed = new HashSet<String>();
+            var written = new HashSet<String>();
+            var scalars = new HashSet<String>();
+            new Walker() {
+                @Override
+                protected void stmt(TypedStmt stmt) {
+                    if (stmt instanceof TypedStmt.Declaration decl) {
+                        declared.add(decl.name().lexeme());
+                    }
+                    super.stmt(stmt);
+                }
+
+                @Override
+                protected void expr(TypedExpr expr) {
+                    switch (expr) {
+                        case TypedExpr.ListAccess access -> accessed.add(name(access));
+                        case TypedExpr.BinaryExpression bin when AssignedVariables.isAssignment(bin.operator())
+                                && bin.left() instanceof TypedExpr.ListAccess access ->
+                            written.add(name(access));
+                        case TypedExpr.VariableExpression variable -> scalars.add(variable.name().lexeme());
+                        default -> {
+                        }
+                    }
+                    super.expr(expr);
+                }
+            }.expr(loop.body());
+
+            // uma lista pode ter mais de um nome; todos usam a mesma cópia
+            var copies = new IdentityHashMap<List<Object>, NumericList>();
+            for (var name : accessed) {
+                var list = (List<Object>) context.getVariable(name);
+                if (range.start() < 0 || range.end() > list.size()) {
+                    return false;
+                }
+                lists.put(name, copies.computeIfAbsent(list, this::numeric));
+            }
+
+            for (var name : scalars) {
+                if (!accessed.contains(name) && !declared.contains(name) && !name.equals(index)
+                        && !reductions.containsKey(name)) {
+                    invariants.put(name, broadcast(context.getVariable(name)));
+                }
+            }
+
+            List<Partial> partials;
+            if (range.end() - range.start() >= parallel.minTrips()) {
+                partials = Interpreter.chunked(range, this::chunk);
+            } else {
+                partials = List.of(chunk(range.start(), range.end()));
+            }
+
+            for (var name : written) {
+                var list = (List<Object>) context.getVariable(name);
+                var copy = copies.get(list);
+                if (copy != list) {
+                    for (int i = 0; i < list.size(); i++) {
+                        list.set(i, copy.get(i));
+                    }
+                }
+            }
+
+            for (var reduction : parallel.reductions()) {
+                var name = reduction.variable().name().lexeme();
+                var sum = (Long) context.getVariable(name);
+                for (var partial : partials) {
+                    sum += partial.sums()[reductions.get(name)];
+                }
+                context.setVariable(name, Numbers.wrap(sum, interpreter.typeOf(reduction.variable())));
+            }
+
+            // iterações que não completaram um vetor
+            for (var partial : partials) {
+                for (long i = partial.tailFrom(); i < partial.tailTo(); i++) {
+                    context.setVariable(index, i);
+                    interpreter.evaluate(loop.body(), context);
+                }
+            }
+            return true;
+        }
+
+        private Partial chunk(long from, long to) {
+            var state = new State<E>(new HashMap<>(), new ArrayList<>(), new long[reductions.size()]);
+            for (int r = 0; r < reductions.size(); r++) {
+                state.accumulators().add(species.zero());
+            }
+
+            var all = species.maskAll(true);
+            var bound = from + species.loopBound(to - from);
+            for (long i = from; i < bound; i += species.length()) {
+                block(loop.body(), (int) i, all, state);
+            }
+
+            for (int r = 0; r < reductions.size(); r++) {
+                state.sums()[r] += state.accumulators().get(r).reduceLanesToLong(VectorOperators.ADD);
+            }
+            return new Partial(state.sums(), bound, to);
+        }
+
+        // variáveis do corpo, uma por lane, e reduções acumuladas em um bloco
+        private record State<E>(HashMap<String, Vector<E>> locals, List<Vector<E>> accumulators, long[] sums) {
+        }
+
+        private void block(TypedExpr.Block block, int offset, VectorMask<E> mask, State<E> state) {
+            for (var stmt : block.statements()) {
+                stmt(stmt, offset, mask, state);
+            }
+            block.lastStatement().ifPresent(stmt -> stmt(stmt, offset, mask, state));
+        }
+
+        private void stmt(TypedStmt stmt, int offset, VectorMask<E> mask, State<E> state) {
+            switch (stmt) {
+                case TypedStmt.Declaration decl ->
+                    state.locals().put(decl.name().lexeme(), value(decl.value().get(), offset, mask, state));
+                case TypedStmt.ExpressionStatement exprStmt -> statement(exprStmt.expression(), offset, mask, state);
+            }
+        }
+
+        private void statement(TypedExpr expr, int offset, VectorMask<E> mask, State<E> state) {
+            if (!mask.anyTrue()) {
+                return;
+            }
+            switch (expr) {
+                case TypedExpr.BinaryExpression bin -> assignment(bin, offset, mask, state);
+                case TypedExpr.IfExpression ifExpr -> {
+                    var condition = condition(ifExpr.condition(), offset, mask, state);
+                    block(ifExpr.thenBranch(), offset, mask.and(condition), state);
+                    if (ifExpr.elseBranch().isPresent()) {
+                        statement(ifExpr.elseBranch().get(), offset, mask.andNot(condition), state);
+                    }
+                }
+                case TypedExpr.Block block -> block(block, offset, mask, state);
+                default -> throw new RuntimeError("Comando não vetorizável.");
+            }
+        }
+
+        private void assignment(TypedExpr.BinaryExpression bin, int offset, VectorMask<E> mask, State<E> state) {
+            var operator = bin.operator().type();
+            switch (bin.left()) {
+                case TypedExpr.ListAccess access -> {
+                    var list = lists.get(name(access));
+                    var current = load(list, offset);
+                    var value = value(bin.right(), offset, mask, state);
+                    store(current.blend(combine(operator, current, value, mask), mask), list, offset);
+                }
+                case TypedExpr.VariableExpression variable when reductions.containsKey(variable.name().lexeme()) -> {
+                    var r = reductions.get(variable.name().lexeme());
+                    if (interpreter.typeOf(variable).equals(lane)) {
+                        var value = value(bin.right(), offset, mask, state);
+                        state.accumulators().set(r, state.accumulators().get(r).lanewise(VectorOperators.ADD, value,
+                                mask));
+                    } else {
+                        var literal = (Long) ((TypedExpr.Literal) bin.right()).value().literal();
+                        state.sums()[r] += mask.trueCount() * literal;
+                    }
+                }
+                case TypedExpr.VariableExpression variable -> {
+                    var current = state.locals().get(variable.name().lexeme());
+                    var value = value(bin.right(), offset, mask, state);
+                    state.locals().put(variable.name().lexeme(),
+                            current.blend(combine(operator, current, value, mask), mask));
+                }
+                default -> throw new RuntimeError("Atribuição não vetorizável.");
+            }
+        }
+
+        private Vector<E> combine(TokenType operator, Vector<E> current, Vector<E> value, VectorMask<E> mask) {
+            return switch (operator) {
+                case TokenType.PLUS_EQUAL -> current.lanewise(VectorOperators.ADD, value);
+                case TokenType.MINUS_EQUAL -> current.lanewise(VectorOperators.SUB, value);
+                case TokenType.STAR_EQUAL -> current.lanewise(VectorOperators.MUL, value);
+                case TokenType.SLASH_EQUAL -> divide(current, value, mask);
+                case TokenType.PERCENT_EQUAL -> remainder(current, value, mask);
+                default -> value;
+            };
+        }
+
+        private VectorMask<E> condition(TypedExpr expr, int offset, VectorMask<E> mask, State<E> state) {
+            switch (expr) {
+                case TypedExpr.UnaryExpression un:
+                    return condition(un.operand(), offset, mask, state).not();
+                case TypedExpr.BinaryExpression bin when bin.operator().type() == TokenType.AND: {
+                    // o lado direito só é avaliado nas lanes em que o esquerdo é verdadeiro
+                    var left = condition(bin.left(), offset, mask, state);
+                    return left.and(condition(bin.right(), offset, mask.and(left), state));
+                }
+                case TypedExpr.BinaryExpression bin when bin.operator().type() == TokenType.OR: {
+                    var left = condition(bin.left(), offset, mask, state);
+                    return left.or(condition(bin.right(), offset, mask.andNot(left), state));
+                }
+                case TypedExpr.BinaryExpression bin: {
+                    var unsigned = lane.equals(Type.U8) || lane.equals(Type.U16) || lane.equals(Type.U32)
+                            || lane.equals(Type.U64);
+                    var comparison = switch (bin.operator().type()) {
+                        case TokenType.EQUAL_EQUAL -> VectorOperators.EQ;
+                        case TokenType.BANG_EQUAL -> VectorOperators.NE;
+                        case TokenType.LESSER -> unsigned ? VectorOperators.UNSIGNED_LT : VectorOperators.LT;
+                        case TokenType.LESSER_EQUAL -> unsigned ? VectorOperators.UNSIGNED_LE : VectorOperators.LE;
+                        case TokenType.GREATER -> unsigned ? VectorOperators.UNSIGNED_GT : VectorOperators.GT;
+                        default -> unsigned ? VectorOperators.UNSIGNED_GE : VectorOperators.GE;
+                    };
+                    return value(bin.left(), offset, mask, state)
+                            .compare(comparison, value(bin.right(), offset, mask, state));
+                }
+                default:
+                    throw new RuntimeError("Condição não vetorizável.");
+            }
+        }
+
+        private Vector<E> value(TypedExpr expr, int offset, VectorMask<E> mask, State<E> state) {
+            return switch (expr) {
+                case TypedExpr.Literal literal -> broadcast(literal.value().literal());
+                case TypedExpr.ListAccess access -> load(lists.get(name(access)), offset);
+                case TypedExpr.VariableExpression variable ->
+                    state.locals().getOrDefault(variable.name().lexeme(), invariants.get(variable.name().lexeme()));
+                case TypedExpr.UnaryExpression un ->
+                    value(un.operand(), offset, mask, state).lanewise(VectorOperators.NEG);
+                case TypedExpr.BinaryExpression bin -> {
+                    var left = value(bin.left(), offset, mask, state);
+                    var right = value(bin.right(), offset, mask, state);
+                    yield switch (bin.operator().type()) {
+                        case TokenType.PLUS -> left.lanewise(VectorOperators.ADD, right);
+                        case TokenType.MINUS -> left.lanewise(VectorOperators.SUB, right);
+                        case TokenType.STAR -> left.lanewise(VectorOperators.MUL, right);
+                        case TokenType.SLASH -> divide(left, right, mask);
+                        default -> remainder(left, right, mask);
+                    };
+                }
+                default -> throw new RuntimeError("Expressão não vetorizável.");
+            };
+        }
+
+        // a divisão só é feita nas lanes ativas, para que as outras não dividam por zero
+        private Vector<E> divide(Vector<E> left, Vector<E> right, VectorMask<E> mask) {
+            try {
+                return left.lanewise(VectorOperators.DIV, right, mask);
+            } catch (ArithmeticException e) {
+                throw new RuntimeError("Divisão por zero.");
+            }
+        }
+
+        // resto com o sinal do dividendo, como o `%` dos inteiros
+        private Vector<E> remainder(Vector<E> left, Vector<E> right, VectorMask<E> mask) {
+            return left.lanewise(VectorOperators.SUB, divide(left, right, mask).lanewise(VectorOperators.MUL, right));
+        }
+
+        @SuppressWarnings("unchecked")
+        private Vector<E> broadcast(Object value) {
+            var type = species.elementType();
+            if (type == double.class) {
+                return (Vector<E>) DoubleVector.broadcast((VectorSpecies<Double>) species,
+                        ((Number) value).doubleValue());
+            } else if (type == float.class) {
+                return (Vector<E>) FloatVector.broadcast((VectorSpecies<Float>) species,
+                        ((Number) value).floatValue());
+            }
+
+            // os tipos sem sinal são guardados no tipo com sinal de mesma largura
+            long integer = (Long) value;
+            if (type == byte.class) {
+                integer = (byte) integer;
+            } else if (type == short.class) {
+                integer = (short) integer;
+            } else if (type == int.class) {
+                integer = (int) integer;
+            }
+            return species.broadcast(integer);
+        }
+
+        // as listas que não são guardadas com o tipo da lane são copiadas
+        private NumericList numeric(List<Object> list) {
+            if (list instanceof NumericList numeric && numeric.element().equals(lane)) {
+                return numeric;
+            }
+            return NumericList.copyOf(list, lane);
+        }
+
+        // a Vector API só lê segmentos do heap da JVM que sejam `byte[]`, então
+        // as listas guardadas em arrays são lidas diretamente dos arrays
+        @SuppressWarnings("unchecked")
+        private Vector<E> load(NumericList list, int offset) {
+            if (list.array().isEmpty()) {
+                return species.fromMemorySegment(list.segment(), byteOffset(offset), ByteOrder.nativeOrder());
+            }
+            var index = list.base() + offset;
+            return (Vector<E>) switch (list.array().get()) {
+                case byte[] a -> ByteVector.fromArray((VectorSpecies<Byte>) species, a, index);
+                case short[] a -> ShortVector.fromArray((VectorSpecies<Short>) species, a, index);
+                case int[] a -> IntVector.fromArray((VectorSpecies<Integer>) species, a, index);
+                case long[] a -> LongVector.fromArray((VectorSpecies<Long>) species, a, index);
+                case float[] a -> FloatVector.fromArray((VectorSpecies<Float>) species, a, index);
+                case double[] a -> DoubleVector.fromArray((VectorSpecies<Double>) species, a, index);
+                default -> throw new IllegalStateException();
+            };
+        }
+
+        private void store(Vector<E> vector, NumericList list, int offset) {
+            if (list.array().isEmpty()) {
+                vector.intoMemorySegment(list.segment(), byteOffset(offset), ByteOrder.nativeOrder());
+                return;
+            }
+            var index = list.base() + offset;
+            switch (list.array().get()) {
+                case byte[] a -> ((ByteVector) vector).intoArray(a, index);
+                case short[] a -> ((ShortVector) vector).intoArray(a, index);
+                case int[] a -> ((IntVector) vector).intoArray(a, index);
+                case long[] a -> ((LongVector) vector).intoArray(a, index);
+                case float[] a -> ((FloatVector) vector).intoArray(a, index);
+                case double[] a -> ((DoubleVector) vector).intoArray(a, index);
+                default -> throw new IllegalStateException();
+            }
+        }
+
+        private long byteOffset(int offset) {
+            return (long) offset * species.elementSize() / 8;
+        }
+
+        private static String name(TypedExpr.ListAccess access) {
+            return ((TypedExpr.VariableExpression) access.target()).name().lexeme();
+        }
+    }
+}
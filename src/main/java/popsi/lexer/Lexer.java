@@ -214,7 +214,7 @@ public class Lexer {
                 .replace("\\\'", "\'")
                 .replace("\\\\", "\\");
 
-        if ((literal.length() != 1)) {
+        if (literal.codePointCount(0, literal.length()) != 1) {
             error("Literal de char deve conter exatamente um caractere");
             return;
         }
@@ -299,6 +299,13 @@ public class Lexer {
                 token(TokenType.LET);
                 break;
             case "for":
+                // `par` só é palavra reservada antes de `for`; nos outros
+                // lugares é um identificador comum
+                if (!tokens.isEmpty() && tokens.getLast().type() == TokenType.IDENTIFIER
+                        && tokens.getLast().lexeme().equals("par")) {
+                    var par = tokens.removeLast();
+                    tokens.add(new Token(par.lexeme(), TokenType.PAR, par.where(), null));
+                }
                 token(TokenType.FOR);
                 break;
             case "while":
@@ -328,6 +335,9 @@ public class Lexer {
             case "read":
                 token(TokenType.READ);
                 break;
+            case "spawn":
+                token(TokenType.SPAWN);
+                break;
             default:
                 token(TokenType.IDENTIFIER);
                 break;
@@ -0,0 +1,235 @@
+package popsi.optimizer;
+
+import java.util.HashMap;
+import java.util.Optional;
+import java.util.Set;
+
+import popsi.analysis.AssignedVariables;
+import popsi.analysis.Type.TypeAlgebra;
+import popsi.analysis.SymbolTable;
+import popsi.analysis.SymbolTable.FunctionInfo;
+import popsi.analysis.SymbolTable.Id;
+import popsi.analysis.typed_ast.TypedAst;
+import popsi.analysis.typed_ast.TypedExpr;
+import popsi.analysis.typed_ast.Walker;
+import popsi.lexer.Token.TokenType;
+
+/// Eliminação de verificações de limites em acessos a listas.
+///
+/// Uma análise de intervalos acompanha os valores possíveis das variáveis de
+/// laços `for`. Os limites dos intervalos são constantes ou o comprimento de
+/// uma lista somado a uma constante (`#v + c`). Um acesso `v[e]` dentro do laço
+/// é marcado como não verificado quando `e` está provadamente em `0..#v` e a
+/// lista `v` não é reatribuída no corpo do laço.
+///
+/// `pop` diminui uma lista sem reatribuí-la, e pode alcançá-la por outro nome.
+/// Nos laços que chamam `pop`, ou funções que alteram algum argumento, os
+/// limites `#v + c` não valem.
+public class BoundsCheckElimination extends Rewriter {
+    /// Limite simbólico: `#list + offset`, ou só `offset` se não houver lista.
+    private record Bound(Optional<String> list, long offset) {
+        static Bound constant(long offset) {
+            return new Bound(Optional.empty(), offset);
+        }
+
+        static Bound length(String list) {
+            return new Bound(Optional.of(list), 0);
+        }
+
+        Bound plus(long c) {
+            return new Bound(list, offset + c);
+        }
+
+        Optional<Bound> plus(Bound other) {
+            if (list.isPresent() && other.list.isPresent()) {
+                return Optional.empty();
+            }
+            return Optional.of(new Bound(list.isPresent() ? list : other.list, offset + other.offset));
+        }
+
+        Optional<Bound> minus(Bound other) {
+            if (other.list.isEmpty()) {
+                return Optional.of(plus(-other.offset));
+            } else if (list.equals(other.list)) {
+                return Optional.of(constant(offset - other.offset));
+            }
+            return Optional.empty();
+        }
+
+        // comprimentos de listas nunca são negativos
+        boolean nonNegative() {
+            return offset >= 0;
+        }
+    }
+
+    private record Interval(Bound lo, Bound hi) {
+    }
+
+    /// Intervalos das variáveis de laço em escopo.
+    private final HashMap<String, Interval> loopVariables = new HashMap<>();
+    private final HashMap<String, Id<FunctionInfo>> functions = new HashMap<>();
+
+    public BoundsCheckElimination(SymbolTable table) {
+        super(table);
+    }
+
+    @Override
+    public TypedAst.Program program(TypedAst.Program program) {
+        for (var function : program.functions()) {
+            functions.put(function.name().lexeme(), function.function());
+        }
+        return super.program(program);
+    }
+
+    @Override
+    protected TypedExpr expr(TypedExpr expr) {
+        return switch (expr) {
+            case TypedExpr.ForExpression forExpr -> forExpression(forExpr);
+            case TypedExpr.ListAccess access when access.checked() && provablyInBounds(access) -> {
+                var rewritten = (TypedExpr.ListAccess) super.expr(access);
+                yield new TypedExpr.ListAccess(rewritten.target(), rewritten.place(), false, rewritten.type());
+            }
+            default -> super.expr(expr);
+        };
+    }
+
+    private TypedExpr forExpression(TypedExpr.ForExpression forExpr) {
+        var variable = forExpr.variable().lexeme();
+        var assigned = AssignedVariables.of(forExpr.body());
+        var resized = resizes(forExpr.body());
+
+        // o intervalo é avaliado uma única vez, antes do laço
+        Optional<Interval> interval = Optional.empty();
+        if (!assigned.contains(variable)
+                && forExpr.range() instanceof TypedExpr.BinaryExpression range
+                && range.operator().type() == TokenType.DOT_DOT) {
+            var start = interval(range.left());
+            var end = interval(range.right());
+            if (start.isPresent() && end.isPresent()) {
+                // o fim do intervalo é exclusivo
+                var lo = stable(start.get().lo(), assigned, resized);
+                var hi = stable(end.get().hi().plus(-1), assigned, resized);
+                if (lo.isPresent() && hi.isPresent()) {
+                    interval = Optional.of(new Interval(lo.get(), hi.get()));
+                }
+            }
+        }
+
+        var previous = loopVariables.remove(variable);
+        interval.ifPresent(i -> loopVariables.put(variable, i));
+        var rewritten = super.expr(forExpr);
+        loopVariables.remove(variable);
+        if (previous != null) {
+            loopVariables.put(variable, previous);
+        }
+        return rewritten;
+    }
+
+    // um limite que menciona uma lista só vale se ela não for reatribuída nem
+    // diminuída no laço
+    private Optional<Bound> stable(Bound bound, Set<String> assigned, boolean resized) {
+        if (bound.list().isPresent() && (resized || assigned.contains(bound.list().get()))) {
+            return Optional.empty();
+        }
+        return Optional.of(bound);
+    }
+
+    // se o corpo pode diminuir alguma lista
+    private boolean resizes(TypedExpr body) {
+        var resizes = new boolean[1];
+        new Walker() {
+            @Override
+            protected void expr(TypedExpr expr) {
+                if (expr instanceof TypedExpr.FunctionCall call) {
+                    var name = Calls.calleeName(call);
+                    resizes[0] |= name.isEmpty() || name.get().equals("pop")
+                            || name.filter(functions::containsKey)
+                                    .map(n -> !table.effects(functions.get(n)).mutatedParameters().isEmpty())
+                                    .orElse(false);
+                }
+                super.expr(expr);
+            }
+        }.expr(body);
+        return resizes[0];
+    }
+
+    private boolean provablyInBounds(TypedExpr.ListAccess access) {
+        if (!(access.target() instanceof TypedExpr.VariableExpression list)
+                || !TypeAlgebra.isList(table.typeDefinition(list.type()))) {
+            return false;
+        }
+
+        var interval = interval(access.place());
+        if (interval.isEmpty()) {
+            return false;
+        }
+
+        var lo = interval.get().lo();
+        var hi = interval.get().hi();
+        return lo.nonNegative()
+                && hi.list().equals(Optional.of(list.name().lexeme()))
+                && hi.offset() <= -1;
+    }
+
+    private Optional<Interval> interval(TypedExpr expr) {
+        switch (expr) {
+            case TypedExpr.Literal literal when literal.value().type() == TokenType.INTEGER: {
+                var value = (Long) literal.value().literal();
+                return Optional.of(new Interval(Bound.constant(value), Bound.constant(value)));
+            }
+            case TypedExpr.VariableExpression variable: {
+                return Optional.ofNullable(loopVariables.get(variable.name().lexeme()));
+            }
+            case TypedExpr.UnaryExpression un when un.operator().type() == TokenType.HASH
+                    && un.operand() instanceof TypedExpr.VariableExpression list
+                    && TypeAlgebra.isList(table.typeDefinition(list.type())): {
+                var length = Bound.length(list.name().lexeme());
+                return Optional.of(new Interval(length, length));
+            }
+            case TypedExpr.BinaryExpression bin when bin.operator().type() == TokenType.PLUS: {
+                var left = interval(bin.left());
+                var right = interval(bin.right());
+                if (left.isEmpty() || right.isEmpty()) {
+                    return Optional.empty();
+                }
+                var lo = left.get().lo().plus(right.get().lo());
+                var hi = left.get().hi().plus(right.get().hi());
+                if (lo.isEmpty() || hi.isEmpty()) {
+                    return Optional.empty();
+                }
+                return Optional.of(new Interval(lo.get(), hi.get()));
+            }
+            case TypedExpr.BinaryExpression bin when bin.operator().type() == TokenType.MINUS: {
+                var left = interval(bin.left());
+                var right = interval(bin.right());
+                if (left.isEmpty() || right.isEmpty()) {
+                    return Optional.empty();
+                }
+                var lo = left.get().lo().minus(right.get().hi());
+                var hi = left.get().hi().minus(right.get().lo());
+                if (lo.isEmpty() || hi.isEmpty()) {
+                    return Optional.empty();
+                }
+                return Optional.of(new Interval(lo.get(), hi.get()));
+            }
+            case TypedExpr.BinaryExpression bin when bin.operator().type() == TokenType.SLASH
+                    && bin.right() instanceof TypedExpr.Literal divisor
+                    && divisor.value().type() == TokenType.INTEGER
+                    && (Long) divisor.value().literal() >= 1: {
+                // para x >= 0 e d >= 1, 0 <= x / d <= x
+                var left = interval(bin.left());
+                if (left.isEmpty() || !left.get().lo().nonNegative() || !left.get().hi().nonNegative()) {
+                    return Optional.empty();
+                }
+                var d = (Long) divisor.value().literal();
+                var lo = left.get().lo();
+                var hi = left.get().hi();
+                return Optional.of(new Interval(
+                        lo.list().isEmpty() ? Bound.constant(lo.offset() / d) : Bound.constant(0),
+                        hi.list().isEmpty() ? Bound.constant(hi.offset() / d) : hi));
+            }
+            default:
+                return Optional.empty();
+        }
+    }
+}
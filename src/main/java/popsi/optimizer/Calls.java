@@ -0,0 +1,56 @@
+package popsi.optimizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import popsi.analysis.Type;
+import popsi.analysis.typed_ast.TypedExpr;
+
+/// Funções auxiliares para chamadas de função na árvore tipada.
+public class Calls {
+    private Calls() {
+    }
+
+    /// Nome da função chamada, quando o alvo da chamada é um identificador.
+    public static Optional<String> calleeName(TypedExpr.FunctionCall call) {
+        if (call.target() instanceof TypedExpr.VariableExpression variable) {
+            return Optional.of(variable.name().lexeme());
+        }
+        return Optional.empty();
+    }
+
+    /// Índice do parâmetro que recebe cada argumento, na ordem em que os
+    /// argumentos aparecem na chamada. Argumentos sem rótulo ocupam as primeiras
+    /// posições livres; argumentos com rótulo vão para o parâmetro de mesmo nome.
+    public static int[] parameterIndices(TypedExpr.FunctionCall call, Type.Function type) {
+        var indices = new int[call.arguments().size()];
+        var used = new boolean[type.args().size()];
+        for (int i = 0; i < indices.length; i++) {
+            var arg = call.arguments().get(i);
+            int index;
+            if (arg.label().isPresent()) {
+                index = type.names().indexOf(arg.label().get().lexeme());
+            } else {
+                index = 0;
+                while (used[index]) {
+                    index++;
+                }
+            }
+            used[index] = true;
+            indices[i] = index;
+        }
+        return indices;
+    }
+
+    /// Valores dos argumentos na ordem dos parâmetros da função chamada.
+    public static List<TypedExpr> positional(TypedExpr.FunctionCall call, Type.Function type) {
+        var indices = parameterIndices(call, type);
+        var values = new TypedExpr[type.args().size()];
+        for (int i = 0; i < indices.length; i++) {
+            values[indices[i]] = call.arguments().get(i).value();
+        }
+        return new ArrayList<>(Arrays.asList(values));
+    }
+}
@@ -0,0 +1,133 @@
+package popsi.optimizer;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Optional;
+
+import popsi.analysis.SymbolTable;
+import popsi.analysis.Type;
+import popsi.analysis.Type.TypeAlgebra;
+import popsi.analysis.typed_ast.TypedAst;
+import popsi.analysis.typed_ast.TypedExpr;
+import popsi.analysis.typed_ast.TypedStmt;
+import popsi.analysis.typed_ast.Walker;
+import popsi.lexer.Token.TokenType;
+
+/// Guarda listas de registros por colunas.
+///
+/// Em `let v: [R] = [R(...), R(...), ...]`, se `v` só aparece em acessos
+/// `v[i].campo` (inclusive em atribuições e `read`) e em `#v`, nenhum elemento
+/// da lista é visto como um registro inteiro. A lista passa então a ser
+/// guardada com uma lista por campo de `R`, e `v[i].campo` vira a leitura de
+/// uma única posição da coluna do campo.
+///
+/// Como os elementos são construídos na própria lista, e `v` não escapa,
+/// nenhum outro nome aponta para um registro da lista.
+public class ColumnLayout extends Rewriter {
+    // listas guardadas por colunas na função atual, e o tipo dos seus registros
+    private final HashMap<String, Type.Record> replaced = new HashMap<>();
+
+    public ColumnLayout(SymbolTable table) {
+        super(table);
+    }
+
+    @Override
+    protected TypedAst.Function function(TypedAst.Function function) {
+        replaced.clear();
+
+        var declarations = new HashMap<String, Integer>();
+        var candidates = new HashMap<String, Type.Record>();
+        var escaped = new HashSet<String>();
+        new Walker() {
+            @Override
+            protected void stmt(TypedStmt stmt) {
+                if (stmt instanceof TypedStmt.Declaration decl) {
+                    var name = decl.name().lexeme();
+                    declarations.merge(name, 1, Integer::sum);
+                    decl.value().flatMap(value -> records(value)).ifPresent(rec -> candidates.put(name, rec));
+                }
+                super.stmt(stmt);
+            }
+
+            @Override
+            protected void expr(TypedExpr expr) {
+                switch (expr) {
+                    // `v[i].campo` e `#v` não fazem a lista escapar
+                    case TypedExpr.RecAccess rec when rec.target() instanceof TypedExpr.ListAccess access
+                            && access.target() instanceof TypedExpr.VariableExpression -> {
+                        expr(access.place());
+                        return;
+                    }
+                    case TypedExpr.UnaryExpression un when un.operator().type() == TokenType.HASH
+                            && un.operand() instanceof TypedExpr.VariableExpression -> {
+                        return;
+                    }
+                    case TypedExpr.VariableExpression variable -> escaped.add(variable.name().lexeme());
+                    case TypedExpr.ForExpression forExpr ->
+                        declarations.merge(forExpr.variable().lexeme(), 1, Integer::sum);
+                    case TypedExpr.Block block -> block.lastStatement().ifPresent(stmt -> {
+                        if (stmt instanceof TypedStmt.Declaration decl) {
+                            escaped.add(decl.name().lexeme());
+                        }
+                    });
+                    default -> {
+                    }
+                }
+                super.expr(expr);
+            }
+        }.expr(function.body());
+
+        // nomes declarados mais de uma vez (em blocos irmãos) são ignorados
+        candidates.forEach((name, rec) -> {
+            if (declarations.get(name) == 1 && !escaped.contains(name)) {
+                replaced.put(name, rec);
+            }
+        });
+
+        if (replaced.isEmpty()) {
+            return function;
+        }
+        return super.function(function);
+    }
+
+    // o tipo dos registros de uma lista cujos elementos são todos construídos nela
+    private Optional<Type.Record> records(TypedExpr value) {
+        if (!(value instanceof TypedExpr.ListExpression list)
+                || !(table.typeDefinition(list.type()) instanceof Type.Named type) || !TypeAlgebra.isList(type)
+                || !(type.args().get(0) instanceof Type.Record record)) {
+            return Optional.empty();
+        }
+        for (var element : list.elements()) {
+            if (!(element instanceof TypedExpr.FunctionCall call)
+                    || !Calls.calleeName(call).filter(record.name()::equals).isPresent()
+                    || !(table.typeDefinition(call.target().type()) instanceof Type.Function function)
+                    || !function.ret().equals(record)) {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(record);
+    }
+
+    @Override
+    protected TypedStmt stmt(TypedStmt stmt) {
+        if (stmt instanceof TypedStmt.Declaration decl && replaced.containsKey(decl.name().lexeme())) {
+            var list = (TypedExpr.ListExpression) expr(decl.value().get());
+            return new TypedStmt.Declaration(decl.name(), decl.typeAst(),
+                    Optional.of(new TypedExpr.ColumnList(list, list.type())), decl.local());
+        }
+        return super.stmt(stmt);
+    }
+
+    @Override
+    protected TypedExpr expr(TypedExpr expr) {
+        if (expr instanceof TypedExpr.RecAccess rec
+                && rec.target() instanceof TypedExpr.ListAccess access
+                && access.target() instanceof TypedExpr.VariableExpression variable
+                && replaced.containsKey(variable.name().lexeme())) {
+            var column = replaced.get(variable.name().lexeme()).fields().indexOf(rec.place().lexeme());
+            return new TypedExpr.ColumnAccess(variable, expr(access.place()), rec.place(), column,
+                    access.checked(), rec.type());
+        }
+        return super.expr(expr);
+    }
+}
@@ -0,0 +1,79 @@
+package popsi.optimizer;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import popsi.analysis.SymbolTable;
+import popsi.analysis.Type;
+import popsi.analysis.typed_ast.TypedExpr;
+import popsi.interpreter.Numbers;
+import popsi.lexer.Token;
+import popsi.lexer.Token.TokenType;
+
+/// Troca as chamadas às conversões numéricas do prelúdio (`i32(x)`,
+/// `f64(x)`, ...) por `TypedExpr.Conversion`, que converte o valor sem uma
+/// chamada de função.
+///
+/// Quando o valor é uma constante numérica, a conversão é calculada aqui, e
+/// a chamada vira um literal do tipo convertido.
+public class Conversions extends Rewriter {
+    private static final Set<Type> NUMERIC = Set.of(
+            Type.U8, Type.U16, Type.U32, Type.U64,
+            Type.I8, Type.I16, Type.I32, Type.I64,
+            Type.F32, Type.F64);
+
+    public Conversions(SymbolTable table) {
+        super(table);
+    }
+
+    @Override
+    protected TypedExpr expr(TypedExpr expr) {
+        if (!(expr instanceof TypedExpr.FunctionCall call) || !conversion(call)) {
+            return super.expr(expr);
+        }
+        var value = expr(call.arguments().get(0).value());
+        var to = table.typeDefinition(call.type());
+        return constant(value)
+                .map(constant -> fold(constant, table.typeDefinition(value.type()), to, call))
+                .orElseGet(() -> new TypedExpr.Conversion(value, call.type()));
+    }
+
+    // `T(x)` em que `T` é uma das conversões do prelúdio
+    private boolean conversion(TypedExpr.FunctionCall call) {
+        return call.arguments().size() == 1
+                && table.typeDefinition(call.target().type()) instanceof Type.Function function
+                && function.args().equals(List.of(Type.NUMERIC))
+                && NUMERIC.contains(function.ret())
+                && function.ret() instanceof Type.Named named
+                && Calls.calleeName(call).filter(named.name()::equals).isPresent();
+    }
+
+    // o valor de um literal numérico, possivelmente negado
+    private static Optional<Object> constant(TypedExpr value) {
+        return switch (value) {
+            case TypedExpr.Literal literal when literal.value().type() == TokenType.INTEGER
+                    || literal.value().type() == TokenType.FLOAT ->
+                Optional.of(literal.value().literal());
+            case TypedExpr.UnaryExpression un when un.operator().type() == TokenType.MINUS
+                    && un.operand() instanceof TypedExpr.Literal literal
+                    && literal.value().type() == TokenType.INTEGER ->
+                Optional.of(-(Long) literal.value().literal());
+            case TypedExpr.UnaryExpression un when un.operator().type() == TokenType.MINUS
+                    && un.operand() instanceof TypedExpr.Literal literal
+                    && literal.value().type() == TokenType.FLOAT ->
+                Optional.of(-(Double) literal.value().literal());
+            default -> Optional.empty();
+        };
+    }
+
+    private TypedExpr fold(Object constant, Type from, Type to, TypedExpr.FunctionCall call) {
+        var value = Numbers.convert(constant, from, to);
+        var where = ((TypedExpr.VariableExpression) call.target()).name().where();
+        var token = value instanceof Double d
+                ? new Token(d.toString(), TokenType.FLOAT, where, d)
+                : new Token(to.equals(Type.U64) ? Long.toUnsignedString((Long) value) : value.toString(),
+                        TokenType.INTEGER, where, value);
+        return new TypedExpr.Literal(token, call.type());
+    }
+}
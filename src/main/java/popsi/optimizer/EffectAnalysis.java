@@ -0,0 +1,193 @@
+package popsi.optimizer;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import popsi.analysis.AssignedVariables;
+import popsi.analysis.Effects;
+import popsi.analysis.SymbolTable;
+import popsi.analysis.SymbolTable.FunctionInfo;
+import popsi.analysis.Type;
+import popsi.analysis.typed_ast.TypedAst;
+import popsi.analysis.typed_ast.TypedExpr;
+import popsi.analysis.typed_ast.TypedStmt;
+import popsi.analysis.typed_ast.Walker;
+import popsi.runtime.Intrinsics;
+
+/// Análise interprocedural de efeitos.
+///
+/// Calcula, para cada função do programa, se ela lê da entrada (`read`),
+/// escreve na saída (`debug`) e quais parâmetros ela altera, e guarda o
+/// resultado no `FunctionInfo` correspondente da tabela de símbolos.
+///
+/// Uma função tem os efeitos das funções que chama, então os resumos são
+/// recalculados até não mudarem mais. Eles só crescem, partindo de "nenhum
+/// efeito", então o processo termina mesmo com recursão.
+///
+/// Listas e registros são passados por referência. Um parâmetro é alterado
+/// quando um elemento ou campo seu recebe um valor, direta ou indiretamente
+/// (por uma variável local que aponta para ele, ou por uma chamada a uma
+/// função que altera o argumento correspondente).
+public class EffectAnalysis {
+    private final SymbolTable table;
+    private final HashMap<String, Effects> summaries = new HashMap<>();
+
+    private EffectAnalysis(SymbolTable table) {
+        this.table = table;
+    }
+
+    public static void analyse(TypedAst.Program program) {
+        var analysis = new EffectAnalysis(program.table());
+        for (var function : program.functions()) {
+            analysis.summaries.put(function.name().lexeme(), Effects.NONE);
+        }
+
+        var changed = true;
+        while (changed) {
+            changed = false;
+            for (var function : program.functions()) {
+                var effects = analysis.effects(function);
+                if (!effects.equals(analysis.summaries.put(function.name().lexeme(), effects))) {
+                    changed = true;
+                }
+            }
+        }
+
+        for (var function : program.functions()) {
+            var info = program.table().functions().get(function.function()).get();
+            program.table().functions().insert(function.function(),
+                    new FunctionInfo(info.name(), info.type(), analysis.summaries.get(function.name().lexeme())));
+        }
+    }
+
+    private Effects effects(TypedAst.Function function) {
+        // variáveis que podem apontar para cada parâmetro; começa pelos próprios parâmetros
+        var aliases = new HashMap<String, Set<Integer>>();
+        for (int i = 0; i < function.parameters().size(); i++) {
+            aliases.put(function.parameters().get(i).name().lexeme(), new HashSet<>(Set.of(i)));
+        }
+
+        var changed = true;
+        while (changed) {
+            var before = size(aliases);
+            new Walker() {
+                @Override
+                protected void stmt(TypedStmt stmt) {
+                    if (stmt instanceof TypedStmt.Declaration decl && decl.value().isPresent()) {
+                        alias(decl.name().lexeme(), decl.value().get(), aliases);
+                    }
+                    super.stmt(stmt);
+                }
+
+                @Override
+                protected void expr(TypedExpr expr) {
+                    if (expr instanceof TypedExpr.BinaryExpression bin
+                            && AssignedVariables.isAssignment(bin.operator())
+                            && bin.left() instanceof TypedExpr.VariableExpression variable) {
+                        alias(variable.name().lexeme(), bin.right(), aliases);
+                    }
+                    super.expr(expr);
+                }
+            }.expr(function.body());
+            changed = before != size(aliases);
+        }
+
+        var readsInput = new boolean[1];
+        var writesOutput = new boolean[1];
+        var mutated = new HashSet<Integer>();
+        new Walker() {
+            @Override
+            protected void expr(TypedExpr expr) {
+                switch (expr) {
+                    case TypedExpr.ReadExpression read -> {
+                        readsInput[0] = true;
+                        read.variables().forEach(place -> mutated.addAll(mutatedBy(place, aliases)));
+                    }
+                    case TypedExpr.DebugExpression _ -> writesOutput[0] = true;
+                    case TypedExpr.BinaryExpression bin when AssignedVariables.isAssignment(bin.operator()) ->
+                        mutated.addAll(mutatedBy(bin.left(), aliases));
+                    case TypedExpr.FunctionCall call -> {
+                        var callee = Calls.calleeName(call).flatMap(EffectAnalysis.this::summary);
+                        if (callee.isPresent()) {
+                            readsInput[0] |= callee.get().readsInput();
+                            writesOutput[0] |= callee.get().writesOutput();
+                        }
+                        var type = (Type.Function) table.typeDefinition(call.target().type());
+                        var arguments = Calls.positional(call, type);
+                        for (int i = 0; i < arguments.size(); i++) {
+                            if (callee.isPresent() && callee.get().mutates(i)) {
+                                mutated.addAll(aliasesOf(arguments.get(i), aliases));
+                            }
+                        }
+                    }
+                    default -> {
+                    }
+                }
+                super.expr(expr);
+            }
+        }.expr(function.body());
+
+        return new Effects(readsInput[0], writesOutput[0], mutated);
+    }
+
+    // efeitos de uma função do programa ou de uma intrínseca
+    private Optional<Effects> summary(String name) {
+        return Optional.ofNullable(summaries.get(name))
+                .or(() -> Intrinsics.get(name).map(Intrinsics.Intrinsic::effects));
+    }
+
+    private static int size(HashMap<String, Set<Integer>> aliases) {
+        return aliases.values().stream().mapToInt(Set::size).sum();
+    }
+
+    // `name = value`: `name` passa a apontar para o que `value` aponta
+    private void alias(String name, TypedExpr value, HashMap<String, Set<Integer>> aliases) {
+        var targets = aliasesOf(value, aliases);
+        if (!targets.isEmpty()) {
+            aliases.computeIfAbsent(name, _ -> new HashSet<>()).addAll(targets);
+        }
+    }
+
+    // parâmetros para os quais o valor de uma expressão pode apontar
+    private Set<Integer> aliasesOf(TypedExpr expr, HashMap<String, Set<Integer>> aliases) {
+        var result = new HashSet<Integer>();
+        switch (expr) {
+            case TypedExpr.VariableExpression variable ->
+                result.addAll(aliases.getOrDefault(variable.name().lexeme(), Set.of()));
+            case TypedExpr.ListAccess access -> result.addAll(aliasesOf(access.target(), aliases));
+            // a fatia compartilha os elementos da lista
+            case TypedExpr.Slice slice -> result.addAll(aliasesOf(slice.target(), aliases));
+            case TypedExpr.RecAccess rec -> result.addAll(aliasesOf(rec.target(), aliases));
+            case TypedExpr.ListExpression list -> list.elements().forEach(e -> result.addAll(aliasesOf(e, aliases)));
+            // o resultado de uma chamada pode ser um dos argumentos, ou conter um deles
+            case TypedExpr.FunctionCall call ->
+                call.arguments().forEach(arg -> result.addAll(aliasesOf(arg.value(), aliases)));
+            case TypedExpr.IfExpression ifExpr -> {
+                result.addAll(aliasesOf(ifExpr.thenBranch(), aliases));
+                ifExpr.elseBranch().ifPresent(e -> result.addAll(aliasesOf(e, aliases)));
+            }
+            case TypedExpr.Block block -> block.lastStatement().ifPresent(stmt -> {
+                if (stmt instanceof TypedStmt.ExpressionStatement exprStmt) {
+                    result.addAll(aliasesOf(exprStmt.expression(), aliases));
+                }
+            });
+            default -> {
+            }
+        }
+        return result;
+    }
+
+    // parâmetros alterados por uma atribuição ao lugar `place`
+    private Set<Integer> mutatedBy(TypedExpr place, HashMap<String, Set<Integer>> aliases) {
+        return switch (place) {
+            // strings são valores: alterar um caractere reatribui a própria string
+            case TypedExpr.ListAccess access when table.typeDefinition(access.target().type()).equals(Type.STR) ->
+                mutatedBy(access.target(), aliases);
+            case TypedExpr.ListAccess access -> aliasesOf(access.target(), aliases);
+            case TypedExpr.RecAccess rec -> aliasesOf(rec.target(), aliases);
+            default -> Set.of();
+        };
+    }
+}
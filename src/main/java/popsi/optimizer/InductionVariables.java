@@ -0,0 +1,93 @@
+package popsi.optimizer;
+
+import java.util.HashMap;
+
+import popsi.analysis.AssignedVariables;
+import popsi.analysis.SymbolTable;
+import popsi.analysis.typed_ast.TypedAst;
+import popsi.analysis.typed_ast.TypedExpr;
+import popsi.analysis.typed_ast.Walker;
+
+/// Guarda as variáveis dos loops `for` em contadores do quadro.
+///
+/// A variável de um `for i in a..b` recebe um valor novo a cada iteração; no
+/// mapa de variáveis do quadro, isso custa uma caixa e uma escrita no mapa por
+/// iteração. O loop vira um `CountedFor`, cuja variável fica em uma posição
+/// (`slot`) de um array de inteiros do quadro, e as leituras de `i` no corpo
+/// viram `Counter`. A posição é a profundidade do loop entre os loops marcados
+/// da função, então loops em sequência reusam a mesma posição.
+///
+/// Um loop não é marcado quando o corpo atribui a `i`, nem quando `i` é lida
+/// dentro de um loop paralelo do corpo: as iterações de um loop paralelo usam
+/// quadros próprios, que só enxergam o mapa de variáveis do quadro da função.
+/// Pelo mesmo motivo, a variável do próprio loop paralelo continua no mapa.
+public class InductionVariables extends Rewriter {
+    private final HashMap<String, Integer> slots = new HashMap<>();
+
+    public InductionVariables(SymbolTable table) {
+        super(table);
+    }
+
+    @Override
+    protected TypedAst.Function function(TypedAst.Function function) {
+        slots.clear();
+        return super.function(function);
+    }
+
+    @Override
+    protected TypedExpr expr(TypedExpr expr) {
+        return switch (expr) {
+            case TypedExpr.VariableExpression variable when slots.containsKey(variable.name().lexeme()) ->
+                new TypedExpr.Counter(variable.name(), slots.get(variable.name().lexeme()), variable.type());
+            case TypedExpr.ForExpression loop when counted(loop) -> {
+                var name = loop.variable().lexeme();
+                var range = expr(loop.range());
+                var slot = slots.size();
+                slots.put(name, slot);
+                var body = block(loop.body());
+                slots.remove(name);
+                yield new TypedExpr.CountedFor(
+                        new TypedExpr.ForExpression(loop.variable(), loop.typeAst(), range, body, loop.type()),
+                        slot, loop.type());
+            }
+            // o loop paralelo continua um `ForExpression`; só o corpo é reescrito
+            case TypedExpr.ParallelFor parallel -> {
+                var loop = parallel.loop();
+                yield new TypedExpr.ParallelFor(
+                        new TypedExpr.ForExpression(loop.variable(), loop.typeAst(), expr(loop.range()),
+                                block(loop.body()), loop.type()),
+                        parallel.reductions(), parallel.minTrips(), parallel.vector(), parallel.type());
+            }
+            default -> super.expr(expr);
+        };
+    }
+
+    // se a variável do loop pode ficar em um contador
+    private static boolean counted(TypedExpr.ForExpression loop) {
+        var name = loop.variable().lexeme();
+        if (AssignedVariables.of(loop.body()).contains(name)) {
+            return false;
+        }
+
+        var shared = new boolean[] { false };
+        new Walker() {
+            private int parallel = 0;
+
+            @Override
+            protected void expr(TypedExpr expr) {
+                switch (expr) {
+                    case TypedExpr.ParallelFor _ -> {
+                        parallel++;
+                        super.expr(expr);
+                        parallel--;
+                    }
+                    case TypedExpr.VariableExpression variable
+                            when parallel > 0 && variable.name().lexeme().equals(name) ->
+                        shared[0] = true;
+                    default -> super.expr(expr);
+                }
+            }
+        }.expr(loop.body());
+        return !shared[0];
+    }
+}
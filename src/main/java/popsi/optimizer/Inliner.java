@@ -0,0 +1,290 @@
+package popsi.optimizer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import popsi.analysis.AssignedVariables;
+import popsi.analysis.SymbolTable;
+import popsi.analysis.SymbolTable.LocalInfo;
+import popsi.analysis.Type;
+import popsi.analysis.typed_ast.TypedAst;
+import popsi.analysis.typed_ast.TypedExpr;
+import popsi.analysis.typed_ast.TypedStmt;
+import popsi.analysis.typed_ast.Walker;
+import popsi.lexer.Token;
+import popsi.lexer.Token.TokenType;
+
+/// Expansão em linha de funções pequenas e não recursivas.
+///
+/// Uma chamada `f(a, b)` é substituída por um bloco que declara os parâmetros
+/// de `f` e contém o seu corpo: `{ let x$0: T = a; let y$1: U = b; corpo }`.
+/// Argumentos literais e variáveis são substituídos diretamente, quando o
+/// parâmetro não é reatribuído no corpo. Todas as variáveis locais de `f` são
+/// renomeadas com nomes que não podem ser escritos no código-fonte, evitando
+/// capturas.
+///
+/// As funções são processadas das chamadas para as chamadoras, de modo que
+/// o corpo expandido já contém as expansões feitas dentro dele.
+public class Inliner extends Rewriter {
+    private final int maxSize;
+    private final int maxCallSites;
+
+    private final LinkedHashMap<String, TypedAst.Function> functions = new LinkedHashMap<>();
+    private final HashMap<String, Set<String>> callees = new HashMap<>();
+    private final HashMap<String, Integer> callSites = new HashMap<>();
+    private final Set<String> recursive = new HashSet<>();
+    private int fresh = 0;
+
+    /// `maxSize`: número máximo de nós no corpo da função expandida.
+    /// `maxCallSites`: número máximo de chamadas à função no programa.
+    public Inliner(SymbolTable table, int maxSize, int maxCallSites) {
+        super(table);
+        this.maxSize = maxSize;
+        this.maxCallSites = maxCallSites;
+    }
+
+    @Override
+    public TypedAst.Program program(TypedAst.Program program) {
+        for (var function : program.functions()) {
+            functions.put(function.name().lexeme(), function);
+        }
+
+        // grafo de chamadas
+        for (var function : program.functions()) {
+            var called = new HashSet<String>();
+            new Walker() {
+                @Override
+                protected void expr(TypedExpr expr) {
+                    if (expr instanceof TypedExpr.FunctionCall call) {
+                        Calls.calleeName(call).filter(functions::containsKey).ifPresent(name -> {
+                            called.add(name);
+                            callSites.merge(name, 1, Integer::sum);
+                        });
+                    }
+                    super.expr(expr);
+                }
+            }.expr(function.body());
+            callees.put(function.name().lexeme(), called);
+        }
+
+        for (var name : functions.keySet()) {
+            if (reaches(name, name, new HashSet<>())) {
+                recursive.add(name);
+            }
+        }
+
+        // pós-ordem: funções chamadas antes das que as chamam
+        var order = new ArrayList<String>();
+        var visited = new HashSet<String>();
+        for (var name : functions.keySet()) {
+            postorder(name, visited, order);
+        }
+
+        for (var name : order) {
+            functions.put(name, function(functions.get(name)));
+        }
+
+        return new TypedAst.Program(new ArrayList<>(functions.values()), program.records(), program.table());
+    }
+
+    private boolean reaches(String from, String target, Set<String> visited) {
+        for (var callee : callees.get(from)) {
+            if (callee.equals(target)) {
+                return true;
+            }
+            if (visited.add(callee) && reaches(callee, target, visited)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void postorder(String name, Set<String> visited, List<String> order) {
+        if (!visited.add(name)) {
+            return;
+        }
+        for (var callee : callees.get(name)) {
+            postorder(callee, visited, order);
+        }
+        order.add(name);
+    }
+
+    @Override
+    protected TypedExpr expr(TypedExpr expr) {
+        if (expr instanceof TypedExpr.FunctionCall call) {
+            var rewritten = (TypedExpr.FunctionCall) super.expr(call);
+            var callee = Calls.calleeName(rewritten).map(functions::get).filter(this::inlineable);
+            if (callee.isPresent()) {
+                return inline(rewritten, callee.get());
+            }
+            return rewritten;
+        }
+        return super.expr(expr);
+    }
+
+    private boolean inlineable(TypedAst.Function callee) {
+        var name = callee.name().lexeme();
+        if (recursive.contains(name) || callSites.getOrDefault(name, 0) > maxCallSites) {
+            return false;
+        }
+
+        var size = new int[1];
+        var returns = new int[1];
+        new Walker() {
+            @Override
+            protected void expr(TypedExpr expr) {
+                size[0]++;
+                if (expr instanceof TypedExpr.ReturnExpression) {
+                    returns[0]++;
+                }
+                super.expr(expr);
+            }
+        }.expr(callee.body());
+
+        if (size[0] > maxSize) {
+            return false;
+        }
+
+        // um `return` no meio do corpo sairia da função chamadora; só aceitamos
+        // um único `return` como último comando do corpo
+        return returns[0] == 0 || returns[0] == 1 && trailingReturn(callee.body()).isPresent();
+    }
+
+    // o último comando do corpo, se for um `return`; com ou sem `;` no final
+    private Optional<TypedExpr.ReturnExpression> trailingReturn(TypedExpr.Block body) {
+        var last = body.lastStatement().or(() -> body.statements().isEmpty()
+                ? Optional.empty()
+                : Optional.of(body.statements().getLast()));
+        if (last.isPresent()
+                && last.get() instanceof TypedStmt.ExpressionStatement stmt
+                && stmt.expression() instanceof TypedExpr.ReturnExpression ret) {
+            return Optional.of(ret);
+        }
+        return Optional.empty();
+    }
+
+    private TypedExpr inline(TypedExpr.FunctionCall call, TypedAst.Function callee) {
+        var type = (Type.Function) table.typeDefinition(call.target().type());
+        var indices = Calls.parameterIndices(call, type);
+        var assignedInBody = new HashSet<>(AssignedVariables.of(callee.body()));
+        assignedInBody.addAll(rewrittenStrings(callee.body()));
+        var argumentsAssign = call.arguments().stream().anyMatch(arg -> !AssignedVariables.of(arg).isEmpty());
+
+        var names = new HashMap<String, TypedExpr>();
+        var statements = new ArrayList<TypedStmt>();
+
+        // os argumentos são avaliados na ordem em que aparecem na chamada
+        for (int i = 0; i < indices.length; i++) {
+            var parameter = callee.parameters().get(indices[i]);
+            var value = call.arguments().get(i).value();
+            var trivial = value instanceof TypedExpr.Literal
+                    || value instanceof TypedExpr.VariableExpression && !argumentsAssign;
+
+            if (trivial && !assignedInBody.contains(parameter.name().lexeme())) {
+                names.put(parameter.name().lexeme(), value);
+            } else {
+                var name = freshName(parameter.name());
+                var local = table.locals().insert(new LocalInfo(name.lexeme(), parameter.type()));
+                statements.add(new TypedStmt.Declaration(name, parameter.typeAst(), Optional.of(value), local));
+                names.put(parameter.name().lexeme(), new TypedExpr.VariableExpression(name, parameter.type()));
+            }
+        }
+
+        var body = new Renamer(names).block(callee.body());
+        statements.addAll(body.statements());
+
+        var lastStatement = body.lastStatement();
+        var ret = trailingReturn(body);
+        if (ret.isPresent()) {
+            if (lastStatement.isEmpty()) {
+                statements.removeLast();
+            }
+            lastStatement = ret.get().value().map(value -> new TypedStmt.ExpressionStatement(value, value.type()));
+        }
+
+        return new TypedExpr.Block(callee.body().start(), statements, lastStatement, call.type());
+    }
+
+    // Variáveis `str` alteradas caractere a caractere (`s[i] = c`, `read(s[i])`).
+    // Strings são valores: a escrita cria uma string nova e a guarda na
+    // variável, então conta como uma atribuição a ela.
+    private Set<String> rewrittenStrings(TypedExpr.Block body) {
+        var names = new HashSet<String>();
+        new Walker() {
+            private void written(TypedExpr target) {
+                if (target instanceof TypedExpr.ListAccess access
+                        && access.target() instanceof TypedExpr.VariableExpression variable
+                        && table.typeDefinition(variable.type()).equals(Type.STR)) {
+                    names.add(variable.name().lexeme());
+                }
+            }
+
+            @Override
+            protected void expr(TypedExpr expr) {
+                switch (expr) {
+                    case TypedExpr.BinaryExpression bin when AssignedVariables.isAssignment(bin.operator()) ->
+                        written(bin.left());
+                    case TypedExpr.ReadExpression read -> read.variables().forEach(this::written);
+                    default -> {
+                    }
+                }
+                super.expr(expr);
+            }
+        }.expr(body);
+        return names;
+    }
+
+    private Token freshName(Token name) {
+        var base = name.lexeme().split("\\$")[0];
+        return new Token(base + "$" + fresh++, TokenType.IDENTIFIER, name.where(), null);
+    }
+
+    /// Renomeia as variáveis locais do corpo expandido.
+    private class Renamer extends Rewriter {
+        private final HashMap<String, TypedExpr> names;
+
+        Renamer(HashMap<String, TypedExpr> names) {
+            super(Inliner.this.table);
+            this.names = names;
+        }
+
+        @Override
+        protected TypedStmt stmt(TypedStmt stmt) {
+            if (stmt instanceof TypedStmt.Declaration decl) {
+                var value = decl.value().map(this::expr);
+                var type = table.locals().get(decl.local()).get().type();
+                var name = freshName(decl.name());
+                var local = table.locals().insert(new LocalInfo(name.lexeme(), type));
+                names.put(decl.name().lexeme(), new TypedExpr.VariableExpression(name, type));
+                return new TypedStmt.Declaration(name, decl.typeAst(), value, local);
+            }
+            return super.stmt(stmt);
+        }
+
+        @Override
+        protected TypedExpr expr(TypedExpr expr) {
+            return switch (expr) {
+                case TypedExpr.VariableExpression variable -> {
+                    var replacement = names.getOrDefault(variable.name().lexeme(), variable);
+                    if (replacement instanceof TypedExpr.VariableExpression renamed) {
+                        yield new TypedExpr.VariableExpression(renamed.name(), variable.type());
+                    }
+                    yield replacement;
+                }
+                case TypedExpr.ForExpression forExpr -> {
+                    var range = expr(forExpr.range());
+                    var name = freshName(forExpr.variable());
+                    names.put(forExpr.variable().lexeme(), new TypedExpr.VariableExpression(name, forExpr.type()));
+                    yield new TypedExpr.ForExpression(name, forExpr.typeAst(), range, block(forExpr.body()),
+                            forExpr.type());
+                }
+                default -> super.expr(expr);
+            };
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package popsi.optimizer;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import popsi.analysis.typed_ast.TypedAst;
+
+/// Executa, em ordem, os passes de otimização sobre o programa analisado.
+public class Optimizer {
+    /// Nomes dos passes, na ordem em que são executados.
+    public static final List<String> PASSES = List.of("conversions", "inline", "scalars", "tce", "bce", "columns",
+            "parallel", "vector", "regions", "counters");
+
+    /// Parâmetros ajustáveis dos passes.
+    public static record Options(
+            int inlineMaxSize, // tamanho máximo, em nós, de uma função expandida em linha
+            int inlineMaxCallSites, // número máximo de chamadas a uma função expandida em linha
+            long parallelMinTrips, // número mínimo de iterações para executar um loop em paralelo
+            Set<String> skipped // nomes dos passes que não são executados (veja `PASSES`)
+    ) {
+        public static final Options DEFAULT = new Options(40, 8, 10_000);
+
+        public Options(int inlineMaxSize, int inlineMaxCallSites, long parallelMinTrips) {
+            this(inlineMaxSize, inlineMaxCallSites, parallelMinTrips, Set.of());
+        }
+
+        public Options {
+            for (var pass : skipped) {
+                if (!PASSES.contains(pass)) {
+                    throw new IllegalArgumentException("Passe de otimização desconhecido: " + pass);
+                }
+            }
+            skipped = Set.copyOf(skipped);
+        }
+
+        /// As mesmas opções, sem executar os passes `passes`.
+        public Options skipping(Set<String> passes) {
+            var all = new HashSet<>(skipped);
+            all.addAll(passes);
+            return new Options(inlineMaxSize, inlineMaxCallSites, parallelMinTrips, all);
+        }
+    }
+
+    private Optimizer() {
+    }
+
+    public static TypedAst.Program optimize(TypedAst.Program program) {
+        return optimize(program, Options.DEFAULT);
+    }
+
+    public static TypedAst.Program optimize(TypedAst.Program program, Options options) {
+        var table = program.table();
+
+        EffectAnalysis.analyse(program);
+
+        var passes = List.<Function<TypedAst.Program, TypedAst.Program>>of(
+                new Conversions(table)::program,
+                new Inliner(table, options.inlineMaxSize(), options.inlineMaxCallSites())::program,
+                new ScalarReplacement(table)::program,
+                new TailCallElimination(table)::program,
+                new BoundsCheckElimination(table)::program,
+                new ColumnLayout(table)::program,
+                new Parallelization(table, options.parallelMinTrips())::program,
+                new Vectorization(table)::program,
+                new RegionAllocation(table)::program,
+                new InductionVariables(table)::program);
+        for (int i = 0; i < passes.size(); i++) {
+            if (!options.skipped().contains(PASSES.get(i))) {
+                program = passes.get(i).apply(program);
+            }
+        }
+
+        return program;
+    }
+}
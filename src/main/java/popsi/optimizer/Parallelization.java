@@ -0,0 +1,219 @@
+package popsi.optimizer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+
+import popsi.analysis.AssignedVariables;
+import popsi.analysis.SymbolTable;
+import popsi.analysis.SymbolTable.FunctionInfo;
+import popsi.analysis.SymbolTable.Id;
+import popsi.analysis.Type;
+import popsi.analysis.Type.TypeAlgebra;
+import popsi.analysis.typed_ast.TypedAst;
+import popsi.analysis.typed_ast.TypedExpr;
+import popsi.analysis.typed_ast.TypedStmt;
+import popsi.analysis.typed_ast.Walker;
+import popsi.lexer.Token.TokenType;
+import popsi.runtime.Intrinsics;
+
+/// Paralelização de loops `for` sem dependências entre iterações.
+///
+/// Um loop `for i in a..b { corpo }` pode ter as suas iterações executadas em
+/// qualquer ordem quando o corpo:
+/// - não usa `return`, `read` ou `debug`, e só chama funções puras;
+/// - não altera `i`;
+/// - só atribui a variáveis declaradas no próprio corpo, a elementos `v[i]` de
+///   listas de fora do loop (ou campos `v[i].x` de listas guardadas por
+///   colunas), ou a reduções;
+/// - só lê uma lista alterada na forma `v[i]`, e, se alterar alguma lista, não
+///   usa nenhuma outra lista ou registro de fora do loop além de `w[i]` e `#w`,
+///   já que `w` poderia ser a mesma lista que `v`.
+///
+/// Uma redução é uma variável inteira de fora do loop que só aparece no corpo
+/// como alvo de `+=` (ou só de `*=`), como em `count += 1`. Como a aritmética
+/// inteira é modular, o resultado não depende da ordem das iterações.
+///
+/// Os loops independentes dentro de um loop paralelo também são marcados, para
+/// as otimizações seguintes, mas nunca são divididos entre threads. O mesmo
+/// vale para um `par for` dentro de outro loop paralelo.
+public class Parallelization extends Rewriter {
+    private final long minTrips;
+    private final HashMap<String, Id<FunctionInfo>> functions = new HashMap<>();
+    private boolean nested = false;
+
+    /// `minTrips`: número mínimo de iterações para executar um loop em paralelo.
+    public Parallelization(SymbolTable table, long minTrips) {
+        super(table);
+        this.minTrips = minTrips;
+    }
+
+    @Override
+    public TypedAst.Program program(TypedAst.Program program) {
+        for (var function : program.functions()) {
+            functions.put(function.name().lexeme(), function.function());
+        }
+        return super.program(program);
+    }
+
+    @Override
+    protected TypedExpr expr(TypedExpr expr) {
+        // um `par for` já vem marcado do analisador
+        if (expr instanceof TypedExpr.ParallelFor parallel) {
+            var loop = parallel.loop();
+            var outer = nested;
+            nested = true;
+            var body = new TypedExpr.ForExpression(loop.variable(), loop.typeAst(), expr(loop.range()),
+                    block(loop.body()), loop.type());
+            nested = outer;
+            return new TypedExpr.ParallelFor(body, parallel.reductions(), outer ? Long.MAX_VALUE : parallel.minTrips(),
+                    parallel.vector(), parallel.type());
+        }
+        if (expr instanceof TypedExpr.ForExpression loop) {
+            var reductions = analyse(loop);
+            if (reductions.isPresent()) {
+                var outer = nested;
+                nested = true;
+                var body = (TypedExpr.ForExpression) super.expr(loop);
+                nested = outer;
+                return new TypedExpr.ParallelFor(body, reductions.get(), outer ? Long.MAX_VALUE : minTrips, false,
+                        loop.type());
+            }
+        }
+        return super.expr(expr);
+    }
+
+    private Optional<List<TypedExpr.Reduction>> analyse(TypedExpr.ForExpression loop) {
+        var index = loop.variable().lexeme();
+
+        var declared = new HashSet<String>();
+        new Walker() {
+            @Override
+            protected void stmt(TypedStmt stmt) {
+                if (stmt instanceof TypedStmt.Declaration decl) {
+                    declared.add(decl.name().lexeme());
+                }
+                super.stmt(stmt);
+            }
+
+            @Override
+            protected void expr(TypedExpr expr) {
+                if (expr instanceof TypedExpr.ForExpression inner) {
+                    declared.add(inner.variable().lexeme());
+                }
+                super.expr(expr);
+            }
+        }.expr(loop.body());
+
+        var independent = new boolean[] { true };
+        var writtenLists = new HashSet<String>();
+        var reductions = new LinkedHashMap<String, TypedExpr.Reduction>();
+        var outerReads = new HashMap<String, Type>();
+
+        new Walker() {
+            private boolean outer(TypedExpr expr) {
+                return expr instanceof TypedExpr.VariableExpression variable
+                        && !declared.contains(variable.name().lexeme())
+                        && !variable.name().lexeme().equals(index);
+            }
+
+            private boolean isIndex(TypedExpr expr) {
+                return expr instanceof TypedExpr.VariableExpression variable
+                        && variable.name().lexeme().equals(index);
+            }
+
+            @Override
+            protected void expr(TypedExpr expr) {
+                switch (expr) {
+                    case TypedExpr.ReturnExpression _, TypedExpr.TailCall _, TypedExpr.ReadExpression _,
+                            TypedExpr.DebugExpression _, TypedExpr.SpawnExpression _ ->
+                        independent[0] = false;
+
+                    case TypedExpr.FunctionCall call -> {
+                        var name = Calls.calleeName(call);
+                        if (name.isEmpty() || !pure(name.get())) {
+                            independent[0] = false;
+                        }
+                        call.arguments().forEach(this::expr);
+                    }
+
+                    case TypedExpr.BinaryExpression bin when AssignedVariables.isAssignment(bin.operator()) -> {
+                        assignment(bin);
+                        expr(bin.right());
+                    }
+
+                    // `w[i]` e `#w` não dependem de outras iterações
+                    case TypedExpr.ListAccess access when outer(access.target()) && isIndex(access.place()) -> {
+                    }
+                    case TypedExpr.UnaryExpression un when un.operator().type() == TokenType.HASH
+                            && outer(un.operand()) -> {
+                    }
+                    case TypedExpr.ColumnAccess access when outer(access.target()) && isIndex(access.place()) -> {
+                    }
+
+                    case TypedExpr.VariableExpression variable when outer(variable) ->
+                        outerReads.put(variable.name().lexeme(), table.typeDefinition(variable.type()));
+
+                    default -> super.expr(expr);
+                }
+            }
+
+            private void assignment(TypedExpr.BinaryExpression bin) {
+                switch (bin.left()) {
+                    case TypedExpr.VariableExpression variable when declared.contains(variable.name().lexeme()) -> {
+                    }
+                    case TypedExpr.VariableExpression variable when outer(variable)
+                            && TypeAlgebra.isIntegerType(table.typeDefinition(variable.type()))
+                            && (bin.operator().type() == TokenType.PLUS_EQUAL
+                                    || bin.operator().type() == TokenType.STAR_EQUAL) -> {
+                        var reduction = new TypedExpr.Reduction(variable, bin.operator());
+                        var previous = reductions.putIfAbsent(variable.name().lexeme(), reduction);
+                        if (previous != null && previous.operator().type() != bin.operator().type()) {
+                            independent[0] = false;
+                        }
+                    }
+                    case TypedExpr.ListAccess access when outer(access.target()) && isIndex(access.place())
+                            && TypeAlgebra.isList(table.typeDefinition(access.target().type())) ->
+                        writtenLists.add(((TypedExpr.VariableExpression) access.target()).name().lexeme());
+                    case TypedExpr.ColumnAccess access when outer(access.target()) && isIndex(access.place()) ->
+                        writtenLists.add(((TypedExpr.VariableExpression) access.target()).name().lexeme());
+                    default -> independent[0] = false;
+                }
+            }
+        }.expr(loop.body());
+
+        if (!independent[0] || writtenLists.isEmpty() && reductions.isEmpty()) {
+            return Optional.empty();
+        }
+
+        // reduções e listas alteradas não podem ser lidas de outra forma
+        for (var name : outerReads.keySet()) {
+            if (reductions.containsKey(name) || writtenLists.contains(name)) {
+                return Optional.empty();
+            }
+        }
+
+        // outra lista (ou registro) poderia ser um nome diferente para uma lista alterada
+        if (!writtenLists.isEmpty() && outerReads.values().stream().anyMatch(Parallelization::reference)) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new ArrayList<>(reductions.values()));
+    }
+
+    // funções do programa sem efeitos, intrínsecas que não alteram os
+    // argumentos (como `get`, mas não `put`), conversões e construtores
+    private boolean pure(String name) {
+        if (functions.containsKey(name)) {
+            return table.effects(functions.get(name)).isPure();
+        }
+        return Intrinsics.get(name).map(intrinsic -> intrinsic.effects().isPure()).orElse(true);
+    }
+
+    private static boolean reference(Type type) {
+        return TypeAlgebra.isList(type) || type instanceof Type.Record || type.equals(Type.ANY);
+    }
+}
@@ -0,0 +1,147 @@
+package popsi.optimizer;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Optional;
+
+import popsi.analysis.SymbolTable;
+import popsi.analysis.Type;
+import popsi.analysis.Type.TypeAlgebra;
+import popsi.analysis.typed_ast.TypedAst;
+import popsi.analysis.typed_ast.TypedExpr;
+import popsi.analysis.typed_ast.TypedStmt;
+import popsi.analysis.typed_ast.Walker;
+import popsi.lexer.Token.TokenType;
+
+/// Marca as listas que podem ser alocadas na região da chamada de função.
+///
+/// Uma lista numérica criada em `let v: [T] = [...]` (ou uma lista guardada por
+/// colunas) não sobrevive à chamada quando `v` só aparece em acessos `v[i]`,
+/// `v[i].campo` e `#v`: nenhum desses acessos copia uma referência para a
+/// lista, e os elementos são números. A lista é então alocada na região da
+/// chamada, liberada inteira quando a função retorna.
+///
+/// As declarações dentro de loops não são marcadas, já que cada iteração
+/// ocuparia mais espaço na região até o retorno. As listas usadas em loops
+/// paralelos também não, já que outras threads não usam a região da chamada.
+public class RegionAllocation extends Rewriter {
+    private final HashSet<String> replaced = new HashSet<>();
+
+    public RegionAllocation(SymbolTable table) {
+        super(table);
+    }
+
+    @Override
+    protected TypedAst.Function function(TypedAst.Function function) {
+        replaced.clear();
+
+        var declarations = new HashMap<String, Integer>();
+        var candidates = new HashSet<String>();
+        var escaped = new HashSet<String>();
+        new Walker() {
+            private int loops = 0;
+            private int parallel = 0;
+
+            @Override
+            protected void stmt(TypedStmt stmt) {
+                if (stmt instanceof TypedStmt.Declaration decl) {
+                    var name = decl.name().lexeme();
+                    declarations.merge(name, 1, Integer::sum);
+                    if (loops == 0 && decl.value().filter(RegionAllocation.this::allocates).isPresent()) {
+                        candidates.add(name);
+                    }
+                }
+                super.stmt(stmt);
+            }
+
+            // `v` em `v[i]`, `v[i].campo` ou `#v`
+            private void target(TypedExpr target) {
+                if (parallel > 0) {
+                    expr(target);
+                }
+            }
+
+            @Override
+            protected void expr(TypedExpr expr) {
+                switch (expr) {
+                    case TypedExpr.ListAccess access when access.target() instanceof TypedExpr.VariableExpression -> {
+                        target(access.target());
+                        expr(access.place());
+                        return;
+                    }
+                    case TypedExpr.ColumnAccess access -> {
+                        target(access.target());
+                        expr(access.place());
+                        return;
+                    }
+                    case TypedExpr.UnaryExpression un when un.operator().type() == TokenType.HASH
+                            && un.operand() instanceof TypedExpr.VariableExpression -> {
+                        target(un.operand());
+                        return;
+                    }
+                    case TypedExpr.VariableExpression variable -> escaped.add(variable.name().lexeme());
+                    case TypedExpr.ForExpression forExpr -> {
+                        declarations.merge(forExpr.variable().lexeme(), 1, Integer::sum);
+                        loops++;
+                        super.expr(expr);
+                        loops--;
+                        return;
+                    }
+                    case TypedExpr.WhileExpression _ -> {
+                        loops++;
+                        super.expr(expr);
+                        loops--;
+                        return;
+                    }
+                    case TypedExpr.ParallelFor _ -> {
+                        parallel++;
+                        super.expr(expr);
+                        parallel--;
+                        return;
+                    }
+                    case TypedExpr.Block block -> block.lastStatement().ifPresent(stmt -> {
+                        if (stmt instanceof TypedStmt.Declaration decl) {
+                            escaped.add(decl.name().lexeme());
+                        }
+                    });
+                    default -> {
+                    }
+                }
+                super.expr(expr);
+            }
+        }.expr(function.body());
+
+        // nomes declarados mais de uma vez (em blocos irmãos) são ignorados
+        for (var name : candidates) {
+            if (declarations.get(name) == 1 && !escaped.contains(name)) {
+                replaced.add(name);
+            }
+        }
+
+        if (replaced.isEmpty()) {
+            return function;
+        }
+        return super.function(function);
+    }
+
+    // listas que a região pode guardar
+    private boolean allocates(TypedExpr value) {
+        return switch (value) {
+            case TypedExpr.ListExpression list -> table.typeDefinition(list.type()) instanceof Type.Named type
+                    && TypeAlgebra.isList(type)
+                    && (TypeAlgebra.isIntegerType(type.args().get(0)) || TypeAlgebra.isFloatType(type.args().get(0)));
+            case TypedExpr.ColumnList _ -> true;
+            default -> false;
+        };
+    }
+
+    @Override
+    protected TypedStmt stmt(TypedStmt stmt) {
+        if (stmt instanceof TypedStmt.Declaration decl && replaced.contains(decl.name().lexeme())) {
+            var value = expr(decl.value().get());
+            return new TypedStmt.Declaration(decl.name(), decl.typeAst(),
+                    Optional.of(new TypedExpr.FrameLocal(value, value.type())), decl.local());
+        }
+        return super.stmt(stmt);
+    }
+}
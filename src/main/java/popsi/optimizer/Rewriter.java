@@ -0,0 +1,119 @@
+package popsi.optimizer;
+
+import java.util.ArrayList;
+
+import popsi.analysis.SymbolTable;
+import popsi.analysis.typed_ast.TypedAst;
+import popsi.analysis.typed_ast.TypedExpr;
+import popsi.analysis.typed_ast.TypedStmt;
+
+/// Reconstrói a árvore tipada nó a nó.
+/// Os passes de otimização estendem esta classe e sobrescrevem apenas os casos
+/// que lhes interessam, delegando o restante para `super`.
+public abstract class Rewriter {
+    protected final SymbolTable table;
+
+    protected Rewriter(SymbolTable table) {
+        this.table = table;
+    }
+
+    public TypedAst.Program program(TypedAst.Program program) {
+        var functions = new ArrayList<TypedAst.Function>();
+        for (var function : program.functions()) {
+            functions.add(function(function));
+        }
+        return new TypedAst.Program(functions, program.records(), program.table());
+    }
+
+    protected TypedAst.Function function(TypedAst.Function function) {
+        return new TypedAst.Function(function.name(), function.parameters(), function.returnType(),
+                block(function.body()), function.function());
+    }
+
+    protected TypedExpr.Block block(TypedExpr.Block block) {
+        var statements = new ArrayList<TypedStmt>();
+        for (var stmt : block.statements()) {
+            statements.add(stmt(stmt));
+        }
+        var lastStatement = block.lastStatement().map(this::stmt);
+        return new TypedExpr.Block(block.start(), statements, lastStatement, block.type());
+    }
+
+    protected TypedStmt stmt(TypedStmt stmt) {
+        return switch (stmt) {
+            case TypedStmt.Declaration decl ->
+                new TypedStmt.Declaration(decl.name(), decl.typeAst(), decl.value().map(this::expr), decl.local());
+            case TypedStmt.ExpressionStatement exprStmt ->
+                new TypedStmt.ExpressionStatement(expr(exprStmt.expression()), exprStmt.type());
+        };
+    }
+
+    protected TypedExpr expr(TypedExpr expr) {
+        return switch (expr) {
+            case TypedExpr.Literal literal -> literal;
+            case TypedExpr.VariableExpression variable -> variable;
+            case TypedExpr.Counter counter -> counter;
+            case TypedExpr.ListExpression list ->
+                new TypedExpr.ListExpression(list.position(), list.elements().stream().map(this::expr).toList(),
+                        list.type());
+            case TypedExpr.BinaryExpression bin ->
+                new TypedExpr.BinaryExpression(expr(bin.left()), bin.operator(), expr(bin.right()), bin.type());
+            case TypedExpr.UnaryExpression un ->
+                new TypedExpr.UnaryExpression(un.operator(), expr(un.operand()), un.type());
+            case TypedExpr.FunctionCall call ->
+                new TypedExpr.FunctionCall(expr(call.target()), call.arguments().stream().map(this::argument).toList(),
+                        call.type());
+            case TypedExpr.Argument arg -> argument(arg);
+            case TypedExpr.ListAccess access ->
+                new TypedExpr.ListAccess(expr(access.target()), expr(access.place()), access.checked(),
+                        access.type());
+            case TypedExpr.Conversion conversion -> new TypedExpr.Conversion(expr(conversion.value()), conversion.type());
+            case TypedExpr.Slice slice -> new TypedExpr.Slice(expr(slice.target()), expr(slice.range()), slice.type());
+            case TypedExpr.RecAccess rec -> new TypedExpr.RecAccess(expr(rec.target()), rec.place(), rec.type());
+            case TypedExpr.ColumnList columns ->
+                new TypedExpr.ColumnList((TypedExpr.ListExpression) expr(columns.list()), columns.type());
+            case TypedExpr.FrameLocal local -> new TypedExpr.FrameLocal(expr(local.value()), local.type());
+            case TypedExpr.ColumnAccess access ->
+                new TypedExpr.ColumnAccess(expr(access.target()), expr(access.place()), access.field(),
+                        access.column(), access.checked(), access.type());
+            case TypedExpr.ForExpression forExpr ->
+                new TypedExpr.ForExpression(forExpr.variable(), forExpr.typeAst(), expr(forExpr.range()),
+                        block(forExpr.body()), forExpr.type());
+            case TypedExpr.ParallelFor parallel ->
+                new TypedExpr.ParallelFor((TypedExpr.ForExpression) expr(parallel.loop()),
+                        parallel.reductions().stream().map(this::reduction).toList(),
+                        parallel.minTrips(), parallel.vector(), parallel.type());
+            case TypedExpr.CountedFor counted ->
+                new TypedExpr.CountedFor((TypedExpr.ForExpression) expr(counted.loop()), counted.slot(),
+                        counted.type());
+            case TypedExpr.IfExpression ifExpr ->
+                new TypedExpr.IfExpression(expr(ifExpr.condition()), block(ifExpr.thenBranch()),
+                        ifExpr.elseBranch().map(this::expr), ifExpr.type());
+            case TypedExpr.WhileExpression whileExpr ->
+                new TypedExpr.WhileExpression(expr(whileExpr.condition()), block(whileExpr.body()), whileExpr.type());
+            case TypedExpr.ReturnExpression ret -> new TypedExpr.ReturnExpression(ret.value().map(this::expr),
+                    ret.type());
+            case TypedExpr.TailCall tailCall ->
+                new TypedExpr.TailCall(tailCall.arguments().stream().map(this::expr).toList(), tailCall.type());
+            case TypedExpr.DebugExpression debug -> new TypedExpr.DebugExpression(expr(debug.value()), debug.type());
+            case TypedExpr.ReadExpression read ->
+                new TypedExpr.ReadExpression(read.variables().stream().map(this::expr).toList(), read.type());
+            // só os argumentos: a chamada continua sendo feita pela tarefa
+            case TypedExpr.SpawnExpression spawn -> new TypedExpr.SpawnExpression(
+                    new TypedExpr.FunctionCall(spawn.call().target(),
+                            spawn.call().arguments().stream().map(this::argument).toList(), spawn.call().type()),
+                    spawn.type());
+            case TypedExpr.Block block -> block(block);
+        };
+    }
+
+    // a variável de uma redução é lida e escrita como as demais
+    protected TypedExpr.Reduction reduction(TypedExpr.Reduction reduction) {
+        return new TypedExpr.Reduction((TypedExpr.VariableExpression) expr(reduction.variable()),
+                reduction.operator());
+    }
+
+    protected TypedExpr.Argument argument(TypedExpr.Argument arg) {
+        return new TypedExpr.Argument(arg.label(), expr(arg.value()), arg.type());
+    }
+}
@@ -0,0 +1,153 @@
+package popsi.optimizer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Optional;
+
+import popsi.analysis.SymbolTable;
+import popsi.analysis.SymbolTable.LocalInfo;
+import popsi.analysis.Type;
+import popsi.analysis.typed_ast.TypedAst;
+import popsi.analysis.typed_ast.TypedExpr;
+import popsi.analysis.typed_ast.TypedStmt;
+import popsi.analysis.typed_ast.Walker;
+import popsi.lexer.Token;
+import popsi.lexer.Token.TokenType;
+
+/// Análise de escape e substituição de registros por escalares.
+///
+/// Um registro criado pelo construtor em `let p: R = R(...)` não escapa da
+/// função quando `p` só aparece como alvo de acessos a campo (`p.x`, inclusive
+/// em atribuições e `read`). Nesse caso o registro nunca é alocado: cada campo
+/// vira uma variável local `p$x`, e `p.x` passa a ser uma leitura dessa
+/// variável.
+///
+/// Qualquer outro uso de `p` (passá-lo a uma função, retorná-lo, colocá-lo em
+/// uma lista, reatribuí-lo, imprimi-lo) faz o registro escapar.
+public class ScalarReplacement extends Rewriter {
+    private final HashMap<String, TypedAst.Rec> records = new HashMap<>();
+
+    // registros substituídos na função atual
+    private final HashMap<String, TypedAst.Rec> replaced = new HashMap<>();
+
+    public ScalarReplacement(SymbolTable table) {
+        super(table);
+    }
+
+    @Override
+    public TypedAst.Program program(TypedAst.Program program) {
+        for (var record : program.records()) {
+            records.put(record.name().lexeme(), record);
+        }
+        return super.program(program);
+    }
+
+    @Override
+    protected TypedAst.Function function(TypedAst.Function function) {
+        replaced.clear();
+
+        var declarations = new HashMap<String, Integer>();
+        var constructed = new HashMap<String, TypedAst.Rec>();
+        var escaped = new HashSet<String>();
+        new Walker() {
+            @Override
+            protected void stmt(TypedStmt stmt) {
+                if (stmt instanceof TypedStmt.Declaration decl) {
+                    var name = decl.name().lexeme();
+                    declarations.merge(name, 1, Integer::sum);
+                    decl.value().flatMap(value -> constructor(value)).ifPresent(rec -> constructed.put(name, rec));
+                }
+                super.stmt(stmt);
+            }
+
+            @Override
+            protected void expr(TypedExpr expr) {
+                switch (expr) {
+                    case TypedExpr.RecAccess rec when rec.target() instanceof TypedExpr.VariableExpression -> {
+                        // acessar um campo não faz o registro escapar
+                        return;
+                    }
+                    case TypedExpr.VariableExpression variable -> escaped.add(variable.name().lexeme());
+                    case TypedExpr.ForExpression forExpr ->
+                        declarations.merge(forExpr.variable().lexeme(), 1, Integer::sum);
+                    case TypedExpr.Block block -> block.lastStatement().ifPresent(stmt -> {
+                        // uma declaração como valor do bloco não pode ser desmembrada
+                        if (stmt instanceof TypedStmt.Declaration decl) {
+                            escaped.add(decl.name().lexeme());
+                        }
+                    });
+                    default -> {
+                    }
+                }
+                super.expr(expr);
+            }
+        }.expr(function.body());
+
+        // nomes declarados mais de uma vez (em blocos irmãos) são ignorados
+        constructed.forEach((name, rec) -> {
+            if (declarations.get(name) == 1 && !escaped.contains(name)) {
+                replaced.put(name, rec);
+            }
+        });
+
+        if (replaced.isEmpty()) {
+            return function;
+        }
+        return super.function(function);
+    }
+
+    // o registro construído por uma expressão `R(...)`, se for o caso
+    private Optional<TypedAst.Rec> constructor(TypedExpr value) {
+        if (value instanceof TypedExpr.FunctionCall call
+                && table.typeDefinition(call.target().type()) instanceof Type.Function type
+                && type.ret() instanceof Type.Record record) {
+            return Calls.calleeName(call)
+                    .filter(record.name()::equals)
+                    .map(records::get);
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    protected TypedExpr.Block block(TypedExpr.Block block) {
+        var statements = new ArrayList<TypedStmt>();
+        for (var stmt : block.statements()) {
+            if (stmt instanceof TypedStmt.Declaration decl && replaced.containsKey(decl.name().lexeme())) {
+                expand(decl, replaced.get(decl.name().lexeme()), statements);
+            } else {
+                statements.add(stmt(stmt));
+            }
+        }
+        var lastStatement = block.lastStatement().map(this::stmt);
+        return new TypedExpr.Block(block.start(), statements, lastStatement, block.type());
+    }
+
+    // `let p: R = R(x: a, y: b)` -> `let p$x = a; let p$y = b;`, na ordem dos argumentos
+    private void expand(TypedStmt.Declaration decl, TypedAst.Rec rec, ArrayList<TypedStmt> statements) {
+        var call = (TypedExpr.FunctionCall) decl.value().get();
+        var type = (Type.Function) table.typeDefinition(call.target().type());
+        var indices = Calls.parameterIndices(call, type);
+        for (int i = 0; i < indices.length; i++) {
+            var field = rec.fields().get(indices[i]);
+            var name = fieldName(decl.name(), field.name().lexeme());
+            var local = table.locals().insert(new LocalInfo(name.lexeme(), field.type()));
+            var value = expr(call.arguments().get(i).value());
+            statements.add(new TypedStmt.Declaration(name, field.typeAst(), Optional.of(value), local));
+        }
+    }
+
+    private Token fieldName(Token record, String field) {
+        return new Token(record.lexeme() + "$" + field, TokenType.IDENTIFIER, record.where(), null);
+    }
+
+    @Override
+    protected TypedExpr expr(TypedExpr expr) {
+        if (expr instanceof TypedExpr.RecAccess rec
+                && rec.target() instanceof TypedExpr.VariableExpression variable
+                && replaced.containsKey(variable.name().lexeme())) {
+            return new TypedExpr.VariableExpression(fieldName(variable.name(), rec.place().lexeme()), rec.type());
+        }
+        return super.expr(expr);
+    }
+}
@@ -0,0 +1,117 @@
+package popsi.optimizer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import popsi.analysis.SymbolTable;
+import popsi.analysis.SymbolTable.LocalInfo;
+import popsi.analysis.Type;
+import popsi.analysis.typed_ast.TypedAst;
+import popsi.analysis.typed_ast.TypedExpr;
+import popsi.analysis.typed_ast.TypedStmt;
+import popsi.lexer.Token;
+import popsi.lexer.Token.TokenType;
+
+/// Eliminação de chamadas recursivas em cauda.
+///
+/// Uma chamada de `f` a si mesma está em posição de cauda quando é o valor de
+/// um `return`, ou quando é o valor final do corpo de `f`: o último comando de
+/// um bloco em posição de cauda, ou um dos ramos de um `if` em posição de
+/// cauda. São os mesmos caminhos que o `Cfa` segue para decidir se uma função
+/// sempre retorna. Essas chamadas são substituídas por `TypedExpr.TailCall`,
+/// que reaproveita o quadro da chamada atual em vez de empilhar outro.
+public class TailCallElimination extends Rewriter {
+    private Optional<TypedAst.Function> current = Optional.empty();
+    private int fresh = 0;
+
+    public TailCallElimination(SymbolTable table) {
+        super(table);
+    }
+
+    @Override
+    protected TypedAst.Function function(TypedAst.Function function) {
+        current = Optional.of(function);
+        var body = tailBlock(function.body());
+        current = Optional.empty();
+        return new TypedAst.Function(function.name(), function.parameters(), function.returnType(), body,
+                function.function());
+    }
+
+    @Override
+    protected TypedExpr expr(TypedExpr expr) {
+        if (expr instanceof TypedExpr.ReturnExpression ret && ret.value().isPresent()) {
+            var value = tail(ret.value().get());
+            if (value instanceof TypedExpr.TailCall) {
+                return value;
+            }
+            return new TypedExpr.ReturnExpression(Optional.of(value), ret.type());
+        }
+        return super.expr(expr);
+    }
+
+    // reescreve uma expressão cujo valor é o valor de retorno da função
+    private TypedExpr tail(TypedExpr expr) {
+        return switch (expr) {
+            case TypedExpr.FunctionCall call when isSelfCall(call) -> tailCall(call);
+            case TypedExpr.IfExpression ifExpr ->
+                new TypedExpr.IfExpression(expr(ifExpr.condition()), tailBlock(ifExpr.thenBranch()),
+                        ifExpr.elseBranch().map(this::tail), ifExpr.type());
+            case TypedExpr.Block block -> tailBlock(block);
+            default -> expr(expr);
+        };
+    }
+
+    private TypedExpr.Block tailBlock(TypedExpr.Block block) {
+        var statements = new ArrayList<TypedStmt>();
+        for (var stmt : block.statements()) {
+            statements.add(stmt(stmt));
+        }
+        var lastStatement = block.lastStatement().map(stmt -> switch (stmt) {
+            case TypedStmt.ExpressionStatement exprStmt ->
+                new TypedStmt.ExpressionStatement(tail(exprStmt.expression()), exprStmt.type());
+            default -> stmt(stmt);
+        });
+        return new TypedExpr.Block(block.start(), statements, lastStatement, block.type());
+    }
+
+    private boolean isSelfCall(TypedExpr.FunctionCall call) {
+        return current.isPresent()
+                && Calls.calleeName(call).equals(Optional.of(current.get().name().lexeme()));
+    }
+
+    private TypedExpr tailCall(TypedExpr.FunctionCall call) {
+        var function = current.get();
+        var type = (Type.Function) table.typeDefinition(call.target().type());
+        var indices = Calls.parameterIndices(call, type);
+
+        var inOrder = true;
+        for (int i = 0; i < indices.length; i++) {
+            inOrder &= indices[i] == i;
+        }
+
+        var arguments = new TypedExpr[indices.length];
+        var statements = new ArrayList<TypedStmt>();
+        for (int i = 0; i < indices.length; i++) {
+            var value = expr(call.arguments().get(i).value());
+            if (inOrder || value instanceof TypedExpr.Literal) {
+                arguments[indices[i]] = value;
+            } else {
+                // argumentos com rótulo fora de ordem são avaliados antes, na ordem da chamada
+                var parameter = function.parameters().get(indices[i]);
+                var name = new Token(parameter.name().lexeme() + "$" + fresh++, TokenType.IDENTIFIER,
+                        parameter.name().where(), null);
+                var local = table.locals().insert(new LocalInfo(name.lexeme(), parameter.type()));
+                statements.add(new TypedStmt.Declaration(name, parameter.typeAst(), Optional.of(value), local));
+                arguments[indices[i]] = new TypedExpr.VariableExpression(name, parameter.type());
+            }
+        }
+
+        var tailCall = new TypedExpr.TailCall(List.of(arguments), call.type());
+        if (statements.isEmpty()) {
+            return tailCall;
+        }
+        return new TypedExpr.Block(function.body().start(), statements,
+                Optional.of(new TypedStmt.ExpressionStatement(tailCall, call.type())), call.type());
+    }
+}
@@ -0,0 +1,214 @@
+package popsi.optimizer;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import popsi.analysis.AssignedVariables;
+import popsi.analysis.SymbolTable;
+import popsi.analysis.Type;
+import popsi.analysis.Type.TypeAlgebra;
+import popsi.analysis.typed_ast.TypedExpr;
+import popsi.analysis.typed_ast.TypedStmt;
+import popsi.analysis.typed_ast.Walker;
+import popsi.lexer.Token.TokenType;
+
+/// Marca os loops paralelos que podem ser executados com instruções vetoriais.
+///
+/// O corpo de um loop `for i in a..b` vetorizável só manipula valores de um
+/// único tipo numérico `T` (o tipo dos elementos das listas acessadas), e é
+/// formado por:
+/// - declarações `let k: T = e;` e atribuições a essas variáveis;
+/// - atribuições `v[i] = e`, `v[i] += e`, ... a listas de fora do loop;
+/// - reduções `s += e`, com `s` do tipo `T` inteiro, ou `s += n` com `n` literal;
+/// - `if c { ... } else { ... }` contendo esses mesmos comandos.
+///
+/// As expressões `e` usam `v[i]`, literais, variáveis declaradas no corpo,
+/// variáveis de fora do loop do tipo `T` e os operadores `+ - *` (e `/ %` nos
+/// inteiros com sinal, `/` nos números de ponto flutuante). As condições `c` são
+/// comparações entre essas expressões, combinadas por `&&`, `||` e `!`.
+///
+/// Cada iteração corresponde a uma posição dos vetores (uma "lane"), e os `if`
+/// viram máscaras.
+public class Vectorization extends Rewriter {
+    private static final List<Type> LANE_TYPES = List.of(Type.I8, Type.I16, Type.I32, Type.I64, Type.U8,
+            Type.U16, Type.U32, Type.U64, Type.F32, Type.F64);
+
+    public Vectorization(SymbolTable table) {
+        super(table);
+    }
+
+    @Override
+    protected TypedExpr expr(TypedExpr expr) {
+        if (expr instanceof TypedExpr.ParallelFor parallel && vectorizable(parallel)) {
+            return new TypedExpr.ParallelFor(parallel.loop(), parallel.reductions(), parallel.minTrips(), true,
+                    parallel.type());
+        }
+        return super.expr(expr);
+    }
+
+    private boolean vectorizable(TypedExpr.ParallelFor parallel) {
+        var loop = parallel.loop();
+        var lane = laneType(loop.body());
+        if (lane.isEmpty()) {
+            return false;
+        }
+        var reductions = new HashSet<String>();
+        for (var reduction : parallel.reductions()) {
+            if (reduction.operator().type() != TokenType.PLUS_EQUAL) {
+                return false;
+            }
+            reductions.add(reduction.variable().name().lexeme());
+        }
+        return new Checker(lane.get(), loop.variable().lexeme(), reductions).block(loop.body());
+    }
+
+    // o tipo dos elementos das listas acessadas no corpo, se for um só
+    private Optional<Type> laneType(TypedExpr.Block body) {
+        var types = new HashSet<Type>();
+        new Walker() {
+            @Override
+            protected void expr(TypedExpr expr) {
+                if (expr instanceof TypedExpr.ListAccess access) {
+                    types.add(table.typeDefinition(access.type()));
+                }
+                super.expr(expr);
+            }
+        }.expr(body);
+        if (types.size() == 1 && LANE_TYPES.contains(types.iterator().next())) {
+            return Optional.of(types.iterator().next());
+        }
+        return Optional.empty();
+    }
+
+    private class Checker {
+        private final Type lane;
+        private final String index;
+        private final Set<String> reductions;
+        private final Set<String> locals = new HashSet<>();
+
+        Checker(Type lane, String index, Set<String> reductions) {
+            this.lane = lane;
+            this.index = index;
+            this.reductions = reductions;
+        }
+
+        private Type typeOf(TypedExpr expr) {
+            return table.typeDefinition(expr.type());
+        }
+
+        boolean block(TypedExpr.Block block) {
+            for (var stmt : block.statements()) {
+                if (!stmt(stmt)) {
+                    return false;
+                }
+            }
+            return block.lastStatement().map(this::stmt).orElse(true);
+        }
+
+        private boolean stmt(TypedStmt stmt) {
+            return switch (stmt) {
+                case TypedStmt.Declaration decl -> {
+                    var type = table.typeDefinition(table.locals().get(decl.local()).get().type());
+                    if (!type.equals(lane) || decl.value().isEmpty() || !value(decl.value().get())) {
+                        yield false;
+                    }
+                    locals.add(decl.name().lexeme());
+                    yield true;
+                }
+                case TypedStmt.ExpressionStatement exprStmt -> statement(exprStmt.expression());
+            };
+        }
+
+        private boolean statement(TypedExpr expr) {
+            return switch (expr) {
+                case TypedExpr.BinaryExpression bin when AssignedVariables.isAssignment(bin.operator()) ->
+                    assignment(bin);
+                case TypedExpr.IfExpression ifExpr -> condition(ifExpr.condition())
+                        && block(ifExpr.thenBranch())
+                        && ifExpr.elseBranch().map(this::statement).orElse(true);
+                case TypedExpr.Block block -> block(block);
+                default -> false;
+            };
+        }
+
+        private boolean assignment(TypedExpr.BinaryExpression bin) {
+            var operator = bin.operator().type();
+            var arithmetic = switch (operator) {
+                case TokenType.EQUAL -> true;
+                case TokenType.PLUS_EQUAL, TokenType.MINUS_EQUAL, TokenType.STAR_EQUAL -> true;
+                case TokenType.SLASH_EQUAL -> divisible();
+                case TokenType.PERCENT_EQUAL -> divisible() && TypeAlgebra.isIntegerType(lane);
+                default -> false;
+            };
+            if (!arithmetic) {
+                return false;
+            }
+
+            return switch (bin.left()) {
+                case TypedExpr.ListAccess access -> lane(access) && value(bin.right());
+                case TypedExpr.VariableExpression variable when locals.contains(variable.name().lexeme()) ->
+                    value(bin.right());
+                case TypedExpr.VariableExpression variable when reductions.contains(variable.name().lexeme()) ->
+                    typeOf(variable).equals(lane) && TypeAlgebra.isIntegerType(lane) && value(bin.right())
+                            || bin.right() instanceof TypedExpr.Literal literal
+                                    && literal.value().type() == TokenType.INTEGER;
+                default -> false;
+            };
+        }
+
+        private boolean condition(TypedExpr expr) {
+            return switch (expr) {
+                case TypedExpr.BinaryExpression bin -> switch (bin.operator().type()) {
+                    case TokenType.AND, TokenType.OR -> condition(bin.left()) && condition(bin.right());
+                    case TokenType.EQUAL_EQUAL, TokenType.BANG_EQUAL, TokenType.LESSER, TokenType.LESSER_EQUAL,
+                            TokenType.GREATER, TokenType.GREATER_EQUAL ->
+                        value(bin.left()) && value(bin.right());
+                    default -> false;
+                };
+                case TypedExpr.UnaryExpression un when un.operator().type() == TokenType.BANG ->
+                    condition(un.operand());
+                default -> false;
+            };
+        }
+
+        private boolean value(TypedExpr expr) {
+            var type = typeOf(expr);
+            if (!type.equals(lane) && !type.equals(Type.I_LITERAL)
+                    && !(type.equals(Type.F_LITERAL) && TypeAlgebra.isFloatType(lane))) {
+                return false;
+            }
+            return switch (expr) {
+                case TypedExpr.Literal literal -> literal.value().type() == TokenType.INTEGER
+                        || literal.value().type() == TokenType.FLOAT;
+                case TypedExpr.ListAccess access -> lane(access);
+                case TypedExpr.VariableExpression variable -> !variable.name().lexeme().equals(index)
+                        && !reductions.contains(variable.name().lexeme());
+                case TypedExpr.UnaryExpression un when un.operator().type() == TokenType.MINUS ->
+                    value(un.operand());
+                case TypedExpr.BinaryExpression bin -> switch (bin.operator().type()) {
+                    case TokenType.PLUS, TokenType.MINUS, TokenType.STAR -> value(bin.left()) && value(bin.right());
+                    case TokenType.SLASH -> divisible() && value(bin.left()) && value(bin.right());
+                    case TokenType.PERCENT -> divisible() && TypeAlgebra.isIntegerType(lane)
+                            && value(bin.left()) && value(bin.right());
+                    default -> false;
+                };
+                default -> false;
+            };
+        }
+
+        // `v[i]`, com `v` de fora do loop
+        private boolean lane(TypedExpr.ListAccess access) {
+            return access.target() instanceof TypedExpr.VariableExpression target
+                    && !locals.contains(target.name().lexeme())
+                    && access.place() instanceof TypedExpr.VariableExpression place
+                    && place.name().lexeme().equals(index);
+        }
+
+        // a divisão sem sinal não tem instrução vetorial correspondente
+        private boolean divisible() {
+            return !List.of(Type.U8, Type.U16, Type.U32, Type.U64).contains(lane);
+        }
+    }
+}
@@ -22,10 +22,12 @@ import popsi.parser.ast.Expr.FunctionCall;
 import popsi.parser.ast.Expr.IfExpression;
 import popsi.parser.ast.Expr.ListAccess;
 import popsi.parser.ast.Expr.ListExpression;
+import popsi.parser.ast.Expr.ParForExpression;
 import popsi.parser.ast.Expr.Literal;
 import popsi.parser.ast.Expr.ReadExpression;
 import popsi.parser.ast.Expr.RecAccess;
 import popsi.parser.ast.Expr.ReturnExpression;
+import popsi.parser.ast.Expr.SpawnExpression;
 import popsi.parser.ast.Expr.UnaryExpression;
 import popsi.parser.ast.Expr.VariableExpression;
 import popsi.parser.ast.Expr.WhileExpression;
@@ -132,6 +134,8 @@ public class Parser {
         }
     }
 
+    // Descarta os tokens do statement com erro. O primeiro token é sempre
+    // consumido, mesmo que inicie um statement, para que a análise avance.
     private void recover_stmt() {
         next();
         while (!atEoF()) {
@@ -140,8 +144,8 @@ public class Parser {
             }
 
             switch (peek().type()) {
-                case TokenType.LET, TokenType.IF, TokenType.WHILE, TokenType.FOR, TokenType.RETURN,
-                        TokenType.DEBUG:
+                case TokenType.LET, TokenType.IF, TokenType.WHILE, TokenType.FOR, TokenType.PAR,
+                        TokenType.RETURN, TokenType.DEBUG, TokenType.SPAWN:
                     return;
                 default:
                     next();
@@ -201,7 +205,8 @@ public class Parser {
     private Block block() {
         var open = consume(TokenType.L_CURLY, "Esperado '{' no início de um bloco de código");
         List<Stmt> stmts = new ArrayList<>();
-        while (peek().type() != TokenType.R_CURLY) {
+        // no fim do arquivo, o `consume` abaixo informa o '}' que falta
+        while (peek().type() != TokenType.R_CURLY && !atEoF()) {
             try {
                 stmts.add(statement());
             } catch (Exception e) {
@@ -248,7 +253,7 @@ public class Parser {
 
     private Stmt exprStmt() {
         return switch (peek().type()) {
-            case TokenType.IF, TokenType.WHILE, TokenType.FOR, TokenType.L_CURLY -> {
+            case TokenType.IF, TokenType.WHILE, TokenType.FOR, TokenType.PAR, TokenType.L_CURLY -> {
                 var block = blockExpression();
                 ateSemi = match(TokenType.SEMICOLON);
                 yield new ExpressionStatement(block);
@@ -270,7 +275,7 @@ public class Parser {
 
     private Expr expression() {
         return switch (peek().type()) {
-            case TokenType.IF, TokenType.WHILE, TokenType.FOR, TokenType.L_CURLY -> blockExpression();
+            case TokenType.IF, TokenType.WHILE, TokenType.FOR, TokenType.PAR, TokenType.L_CURLY -> blockExpression();
             default -> blocklessExpression();
         };
     }
@@ -278,7 +283,8 @@ public class Parser {
     private Expr blockExpression() {
         if (match(TokenType.IF)) {
             return ifExpression();
-        } else if (peek().type() == TokenType.WHILE || peek().type() == TokenType.FOR) {
+        } else if (peek().type() == TokenType.WHILE || peek().type() == TokenType.FOR
+                || peek().type() == TokenType.PAR) {
             return loop();
         } else {
             return block();
@@ -305,13 +311,17 @@ public class Parser {
             return whileExpression();
         } else if (match(TokenType.FOR)) {
             return forExpression();
+        } else if (match(TokenType.PAR)) {
+            var par = previous();
+            consume(TokenType.FOR, "Esperado 'for' após 'par'");
+            return new ParForExpression(par, forExpression());
         } else {
             // unreachable
             throw new IllegalArgumentException();
         }
     }
 
-    private Expr forExpression() {
+    private ForExpression forExpression() {
         Token forToken = previous();
         Token variable = consume(TokenType.IDENTIFIER, "Esperado nome da variável após 'for'");
         consume(TokenType.COLON, "Esperado ':' após o nome da variável no loop 'for'");
@@ -337,6 +347,14 @@ public class Parser {
         return new ReadExpression(read, variables);
     }
 
+    private Expr spawnExpression() {
+        var spawn = previous();
+        if (!(call() instanceof FunctionCall call)) {
+            throw error("Esperada uma chamada de função após 'spawn'");
+        }
+        return new SpawnExpression(spawn, call);
+    }
+
     private Expr whileExpression() {
         var whileToken = previous();
         Expr condition = expression();
@@ -355,6 +373,8 @@ public class Parser {
             return new DebugExpression(previous(), expression());
         } else if (match(TokenType.READ)) {
             return readExpression();
+        } else if (match(TokenType.SPAWN)) {
+            return spawnExpression();
         } else {
             return attribution();
         }
@@ -536,7 +556,15 @@ public class Parser {
 
     private TypeAst type() {
         if (match(TokenType.IDENTIFIER)) {
-            return new TypeAst.Named(previous());
+            var name = previous();
+            List<TypeAst> args = new ArrayList<>();
+            if (match(TokenType.L_BRACKET)) {
+                do {
+                    args.add(type());
+                } while (match(TokenType.COMMA));
+                consume(TokenType.R_BRACKET, "Esperado ']' após os argumentos do tipo");
+            }
+            return new TypeAst.Named(name, args);
         } else if (match(TokenType.L_BRACKET)) {
             TypeAst elementType = type();
             consume(TokenType.R_BRACKET, "Esperado ']' após o tipo da lista");
@@ -59,6 +59,8 @@ public class AstPrinter {
             case Expr.ReturnExpression returnExpr -> parens("return", returnExpr.value());
             case Expr.DebugExpression debugExpr -> parens("debug", debugExpr.value());
             case Expr.ReadExpression readExpr -> parens("read", readExpr.variables());
+            case Expr.SpawnExpression spawnExpr -> parens("spawn", spawnExpr.call());
+            case Expr.ParForExpression parFor -> parens("par", parFor.loop());
             case Expr.Block block -> parens("block", block.statements(), block.lastStatement());
             case Expr.ListExpression list -> parens("list", list.elements());
             case Expr.Argument arg ->
@@ -80,7 +82,9 @@ public class AstPrinter {
 
     private String visitType(TypeAst type) {
         return switch (type) {
-            case TypeAst.Named named -> named.name().lexeme();
+            case TypeAst.Named named when named.args().isEmpty() -> named.name().lexeme();
+            case TypeAst.Named named ->
+                named.name().lexeme() + brackets(String.join(", ", named.args().stream().map(this::visitType).toList()));
             case TypeAst.List list -> brackets(visitType(list.elementType()));
         };
     }
@@ -150,6 +150,22 @@ public sealed interface Expr {
                 }
         }
 
+        // Par for -> "par" for, com as iterações divididas entre threads
+        public static record ParForExpression(Token keyword, ForExpression loop) implements Expr {
+                @Override
+                public FilePosition position() {
+                        return keyword.where();
+                }
+        }
+
+        // Spawn -> "spawn" chamada, executada em uma nova tarefa
+        public static record SpawnExpression(Token keyword, FunctionCall call) implements Expr {
+                @Override
+                public FilePosition position() {
+                        return keyword.where();
+                }
+        }
+
         // Bloco -> "{" comando (";" comando)* ";"? "}"
         public static record Block(FilePosition start, List<Stmt> statements, Optional<Stmt> lastStatement)
                         implements Expr {
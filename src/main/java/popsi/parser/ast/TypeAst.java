@@ -3,7 +3,8 @@ package popsi.parser.ast;
 import popsi.lexer.Token;
 
 public sealed interface TypeAst {
-    public record Named(Token name) implements TypeAst {
+    /// Tipo pelo nome, com os argumentos de `map[K, V]`.
+    public record Named(Token name, java.util.List<TypeAst> args) implements TypeAst {
     }
 
     public record List(TypeAst elementType) implements TypeAst {
@@ -0,0 +1,6 @@
+package popsi.runtime;
+
+/// Valor que sabe criar uma cópia de si mesmo com a mesma representação.
+public interface Copyable<T> {
+    T copy();
+}
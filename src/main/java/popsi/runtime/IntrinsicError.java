@@ -0,0 +1,9 @@
+package popsi.runtime;
+
+/// Erro de execução em uma intrínseca, como a leitura de uma chave que não
+/// está em um mapa.
+public class IntrinsicError extends RuntimeException {
+    public IntrinsicError(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,251 @@
+package popsi.runtime;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import popsi.analysis.Effects;
+import popsi.analysis.Type;
+import popsi.analysis.Type.TypeAlgebra;
+import popsi.runtime.map.PopsiMap;
+import popsi.runtime.task.Channel;
+
+/// Funções do prelúdio implementadas em Java.
+///
+/// Cada intrínseca tem a assinatura vista pelo analisador e uma implementação
+/// em um `MethodHandle`, chamada diretamente pelo interpretador, sem passar
+/// por código Popsi.
+///
+/// Uma assinatura com retorno `{numeric}` ou `[any]` é genérica: o retorno
+/// tem o tipo dos argumentos, como em `max(a, b)`. Nas funções de mapas,
+/// listas e canais, os argumentos e retornos `any` têm os tipos dos elementos
+/// do mapa, lista ou canal recebido, como em `sum(v)`.
+public final class Intrinsics {
+    /// `handle` recebe as listas de quem chama, o tipo do resultado da chamada
+    /// e um array com os argumentos. `effects` diz quais argumentos a função
+    /// altera.
+    public record Intrinsic(String name, Type.Function type, Effects effects, MethodHandle handle) {
+        public Object invoke(ListFactory lists, Type result, Object[] arguments) {
+            try {
+                return (Object) handle.invokeExact(lists, result, arguments);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /// Cria as listas vazias de `with_capacity`. A representação de uma lista
+    /// é escolhida por quem chama a intrínseca, que a passa para `invoke`.
+    public interface ListFactory {
+        List<Object> withCapacity(Type element, int capacity);
+    }
+
+    private static final LinkedHashMap<String, Intrinsic> INTRINSICS = new LinkedHashMap<>();
+
+    static {
+        var numeric = List.<Type>of(Type.NUMERIC);
+        var pair = List.<Type>of(Type.NUMERIC, Type.NUMERIC);
+        var list = new Type.Named("[]", List.of(Type.ANY));
+        register("sqrt", new Type.Function(numeric, Type.F64, List.of("value")));
+        register("abs", new Type.Function(numeric, Type.NUMERIC, List.of("value")));
+        register("min", new Type.Function(pair, Type.NUMERIC, List.of("a", "b")));
+        register("max", new Type.Function(pair, Type.NUMERIC, List.of("a", "b")));
+        register("copy", new Type.Function(List.of(list), list, List.of("list")));
+        register("with_capacity", new Type.Function(numeric, list, List.of("capacity")));
+        register("push", new Type.Function(List.of(list, Type.ANY), Type.UNIT, List.of("list", "value")),
+                new Effects(false, false, Set.of(0)));
+        register("pop", new Type.Function(List.of(list), Type.ANY, List.of("list")),
+                new Effects(false, false, Set.of(0)));
+
+        var numbers = new Type.Named("[]", List.of(Type.NUMERIC));
+        register("sort", new Type.Function(List.of(numbers), Type.UNIT, List.of("list")),
+                new Effects(false, false, Set.of(0)));
+        register("sum", new Type.Function(List.of(numbers), Type.ANY, List.of("list")));
+        register("minimum", new Type.Function(List.of(numbers), Type.ANY, List.of("list")));
+        register("maximum", new Type.Function(List.of(numbers), Type.ANY, List.of("list")));
+        register("count_eq", new Type.Function(List.of(numbers, Type.ANY), Type.I32, List.of("list", "value")));
+
+        var map = new Type.Named("map", List.of(Type.ANY, Type.ANY));
+        register("map", new Type.Function(List.of(), map, List.of()));
+        register("get", new Type.Function(List.of(map, Type.ANY), Type.ANY, List.of("map", "key")));
+        register("put", new Type.Function(List.of(map, Type.ANY, Type.ANY), Type.UNIT,
+                List.of("map", "key", "value")), new Effects(false, false, Set.of(0)));
+        register("contains", new Type.Function(List.of(map, Type.ANY), Type.BOOLEAN, List.of("map", "key")));
+
+        // enviar e receber mudam o canal, e a ordem das operações importa
+        var channel = new Type.Named("chan", List.of(Type.ANY));
+        register("channel", new Type.Function(numeric, channel, List.of("capacity")));
+        register("send", new Type.Function(List.of(channel, Type.ANY), Type.UNIT, List.of("channel", "value")),
+                new Effects(false, false, Set.of(0)));
+        register("receive", new Type.Function(List.of(channel), Type.ANY, List.of("channel")),
+                new Effects(false, false, Set.of(0)));
+    }
+
+    private Intrinsics() {
+    }
+
+    private static void register(String name, Type.Function type) {
+        register(name, type, Effects.NONE);
+    }
+
+    // A implementação é o método estático `name`, que recebe o tipo do
+    // resultado e os argumentos, e opcionalmente, antes deles, as listas de
+    // quem chama.
+    private static void register(String name, Type.Function type, Effects effects) {
+        var parameters = new ArrayList<Class<?>>();
+        parameters.add(Type.class);
+        for (int i = 0; i < type.args().size(); i++) {
+            parameters.add(Object.class);
+        }
+        var lookup = MethodHandles.lookup();
+        try {
+            MethodHandle handle;
+            try {
+                handle = lookup.findStatic(Intrinsics.class, name,
+                        MethodType.methodType(Object.class, parameters).insertParameterTypes(0, ListFactory.class));
+            } catch (NoSuchMethodException e) {
+                handle = MethodHandles.dropArguments(
+                        lookup.findStatic(Intrinsics.class, name, MethodType.methodType(Object.class, parameters)),
+                        0, ListFactory.class);
+            }
+            handle = handle.asSpreader(Object[].class, type.args().size());
+            INTRINSICS.put(name, new Intrinsic(name, type, effects, handle));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    public static Collection<Intrinsic> all() {
+        return Collections.unmodifiableCollection(INTRINSICS.values());
+    }
+
+    public static Optional<Intrinsic> get(String name) {
+        return Optional.ofNullable(INTRINSICS.get(name));
+    }
+
+    // implementações; os números chegam como `Long` ou `Double`, e o
+    // resultado é ajustado ao tipo da chamada por quem chama
+
+    private static Object sqrt(Type type, Object value) {
+        return Math.sqrt(((Number) value).doubleValue());
+    }
+
+    private static Object abs(Type type, Object value) {
+        if (value instanceof Double d) {
+            return Math.abs(d);
+        }
+        return type.equals(Type.U64) ? value : (Object) Math.abs((Long) value);
+    }
+
+    private static Object min(Type type, Object a, Object b) {
+        return compare(type, a, b) <= 0 ? a : b;
+    }
+
+    private static Object max(Type type, Object a, Object b) {
+        return compare(type, a, b) >= 0 ? a : b;
+    }
+
+    private static int compare(Type type, Object a, Object b) {
+        if (a instanceof Long l && b instanceof Long r) {
+            return type.equals(Type.U64) ? Long.compareUnsigned(l, r) : Long.compare(l, r);
+        }
+        return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+    }
+
+    private static Object copy(Type type, Object list) {
+        if (list instanceof Copyable<?> copyable) {
+            return copyable.copy();
+        }
+        return new ArrayList<>((List<?>) list);
+    }
+
+    private static Object with_capacity(ListFactory lists, Type type, Object capacity) {
+        var size = ((Number) capacity).longValue();
+        if (size < 0 || size > Integer.MAX_VALUE) {
+            throw new IntrinsicError("Capacidade inválida para uma lista: " + size + ".");
+        }
+        var element = TypeAlgebra.isList(type) ? ((Type.Named) type).args().get(0) : Type.ANY;
+        return lists.withCapacity(element, (int) size);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object push(Type type, Object list, Object value) {
+        ((List<Object>) list).add(value);
+        return null;
+    }
+
+    private static Object pop(Type type, Object list) {
+        var elements = (List<?>) list;
+        if (elements.isEmpty()) {
+            throw new IntrinsicError("Não há elementos para remover da lista.");
+        }
+        return elements.remove(elements.size() - 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object sort(Type type, Object list) {
+        NumericLists.sort((List<Object>) list);
+        return null;
+    }
+
+    private static Object sum(Type type, Object list) {
+        return NumericLists.sum((List<?>) list, type);
+    }
+
+    private static Object minimum(Type type, Object list) {
+        return NumericLists.minimum((List<?>) list, type);
+    }
+
+    private static Object maximum(Type type, Object list) {
+        return NumericLists.maximum((List<?>) list, type);
+    }
+
+    private static Object count_eq(Type type, Object list, Object value) {
+        return NumericLists.countEq((List<?>) list, value);
+    }
+
+    private static Object map(Type type) {
+        return PopsiMap.create(type instanceof Type.Named named && TypeAlgebra.isMap(named)
+                ? named.args().get(0)
+                : Type.ANY);
+    }
+
+    private static Object get(Type type, Object map, Object key) {
+        return ((PopsiMap) map).get(key);
+    }
+
+    private static Object put(Type type, Object map, Object key, Object value) {
+        ((PopsiMap) map).put(key, value);
+        return null;
+    }
+
+    private static Object contains(Type type, Object map, Object key) {
+        return ((PopsiMap) map).contains(key);
+    }
+
+    private static Object channel(Type type, Object capacity) {
+        var size = ((Number) capacity).longValue();
+        if (size < 1 || size > Integer.MAX_VALUE) {
+            throw new IntrinsicError("Capacidade inválida para um canal: " + size + ".");
+        }
+        return new Channel((int) size);
+    }
+
+    private static Object send(Type type, Object channel, Object value) {
+        ((Channel) channel).send(value);
+        return null;
+    }
+
+    private static Object receive(Type type, Object channel) {
+        return ((Channel) channel).receive();
+    }
+}
@@ -0,0 +1,23 @@
+package popsi.runtime;
+
+import java.lang.foreign.MemorySegment;
+import java.util.Optional;
+
+import popsi.analysis.Type;
+
+/// Lista de números guardada com a largura do tipo dos elementos, acessível
+/// sem passar pelos valores `Long` e `Double` de `List.get`.
+public interface NumericArray {
+    Type element();
+
+    int size();
+
+    /// A memória dos elementos, a partir do primeiro.
+    MemorySegment segment();
+
+    /// O array que guarda os elementos, se a lista estiver no heap da JVM. O
+    /// primeiro elemento está na posição `base()`.
+    Optional<Object> array();
+
+    int base();
+}
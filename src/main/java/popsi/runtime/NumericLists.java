@@ -0,0 +1,323 @@
+package popsi.runtime;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntToLongFunction;
+import java.util.stream.IntStream;
+
+import popsi.analysis.Type;
+import popsi.analysis.Type.TypeAlgebra;
+
+/// Ordenação e reduções sobre listas de números, usadas pelas intrínsecas
+/// `sort`, `sum`, `minimum`, `maximum` e `count_eq`.
+///
+/// As reduções percorrem a lista em pedaços de `CHUNK` elementos. Com mais de
+/// um pedaço, os pedaços são percorridos em paralelo, no pool de fork-join, e
+/// os resultados parciais são combinados em ordem; como os pedaços não
+/// dependem do número de threads, uma soma de ponto flutuante dá sempre o
+/// mesmo resultado. Da mesma forma, `sort` usa `Arrays.parallelSort` a partir
+/// de `CHUNK` elementos.
+///
+/// As listas que não são `NumericArray` (como as de tipo `[{integer}]`) são
+/// percorridas pelos valores de `List.get`.
+final class NumericLists {
+    static final int CHUNK = 1 << 15;
+
+    private NumericLists() {
+    }
+
+    static Object sum(List<?> list, Type type) {
+        if (isFloat(list, type)) {
+            var element = doubles(list);
+            var partial = doubleChunks(list.size(), (from, to) -> {
+                var sum = 0.0;
+                for (int i = from; i < to; i++) {
+                    sum += element.applyAsDouble(i);
+                }
+                return sum;
+            });
+            var sum = 0.0;
+            for (var value : partial) {
+                sum += value;
+            }
+            return sum;
+        }
+        var element = longs(list);
+        var partial = longChunks(list.size(), (from, to) -> {
+            var sum = 0L;
+            for (int i = from; i < to; i++) {
+                sum += element.applyAsLong(i);
+            }
+            return sum;
+        });
+        // a aritmética inteira é modular, então a ordem das somas não importa
+        return Arrays.stream(partial).sum();
+    }
+
+    static Object minimum(List<?> list, Type type) {
+        return extreme(list, type, -1);
+    }
+
+    static Object maximum(List<?> list, Type type) {
+        return extreme(list, type, 1);
+    }
+
+    // o menor (`sign` = -1) ou o maior (`sign` = 1) elemento
+    private static Object extreme(List<?> list, Type type, int sign) {
+        if (list.isEmpty()) {
+            throw new IntrinsicError("A lista está vazia.");
+        }
+        if (isFloat(list, type)) {
+            var element = doubles(list);
+            var partial = doubleChunks(list.size(), (from, to) -> {
+                var best = element.applyAsDouble(from);
+                for (int i = from + 1; i < to; i++) {
+                    var value = element.applyAsDouble(i);
+                    best = sign < 0 ? Math.min(best, value) : Math.max(best, value);
+                }
+                return best;
+            });
+            return Arrays.stream(partial).reduce(sign < 0 ? Math::min : Math::max).getAsDouble();
+        }
+        var element = longs(list);
+        var unsigned = elementType(list, type).equals(Type.U64);
+        var partial = longChunks(list.size(), (from, to) -> {
+            var best = element.applyAsLong(from);
+            for (int i = from + 1; i < to; i++) {
+                var value = element.applyAsLong(i);
+                var order = unsigned ? Long.compareUnsigned(value, best) : Long.compare(value, best);
+                if (order * sign > 0) {
+                    best = value;
+                }
+            }
+            return best;
+        });
+        var best = partial[0];
+        for (var value : partial) {
+            var order = unsigned ? Long.compareUnsigned(value, best) : Long.compare(value, best);
+            if (order * sign > 0) {
+                best = value;
+            }
+        }
+        return best;
+    }
+
+    static long countEq(List<?> list, Object value) {
+        if (value instanceof Double d) {
+            var element = doubles(list);
+            var target = (double) d;
+            return Arrays.stream(longChunks(list.size(), (from, to) -> {
+                var count = 0L;
+                for (int i = from; i < to; i++) {
+                    if (element.applyAsDouble(i) == target) {
+                        count++;
+                    }
+                }
+                return count;
+            })).sum();
+        }
+        var element = longs(list);
+        var target = (long) (Long) value;
+        return Arrays.stream(longChunks(list.size(), (from, to) -> {
+            var count = 0L;
+            for (int i = from; i < to; i++) {
+                if (element.applyAsLong(i) == target) {
+                    count++;
+                }
+            }
+            return count;
+        })).sum();
+    }
+
+    static void sort(List<Object> list) {
+        if (!(list instanceof NumericArray numeric)) {
+            list.sort(NumericLists::compare);
+            return;
+        }
+        var size = numeric.size();
+        var heap = numeric.array();
+        var array = heap.orElseGet(() -> toArray(numeric));
+        var from = heap.isPresent() ? numeric.base() : 0;
+        var to = from + size;
+
+        // os tipos sem sinal são ordenados com o bit de sinal invertido
+        var type = numeric.element();
+        var unsigned = type.equals(Type.U8) || type.equals(Type.U16) || type.equals(Type.U32)
+                || type.equals(Type.U64);
+        if (unsigned) {
+            flipSign(array, from, to);
+        }
+        var parallel = size >= CHUNK;
+        switch (array) {
+            case byte[] a -> {
+                if (parallel) {
+                    Arrays.parallelSort(a, from, to);
+                } else {
+                    Arrays.sort(a, from, to);
+                }
+            }
+            case short[] a -> {
+                if (parallel) {
+                    Arrays.parallelSort(a, from, to);
+                } else {
+                    Arrays.sort(a, from, to);
+                }
+            }
+            case int[] a -> {
+                if (parallel) {
+                    Arrays.parallelSort(a, from, to);
+                } else {
+                    Arrays.sort(a, from, to);
+                }
+            }
+            case long[] a -> {
+                if (parallel) {
+                    Arrays.parallelSort(a, from, to);
+                } else {
+                    Arrays.sort(a, from, to);
+                }
+            }
+            case float[] a -> {
+                if (parallel) {
+                    Arrays.parallelSort(a, from, to);
+                } else {
+                    Arrays.sort(a, from, to);
+                }
+            }
+            case double[] a -> {
+                if (parallel) {
+                    Arrays.parallelSort(a, from, to);
+                } else {
+                    Arrays.sort(a, from, to);
+                }
+            }
+            default -> throw new IllegalStateException();
+        }
+        if (unsigned) {
+            flipSign(array, from, to);
+        }
+
+        // listas fora do heap da JVM são ordenadas em uma cópia
+        if (heap.isEmpty()) {
+            var sorted = switch (array) {
+                case byte[] a -> MemorySegment.ofArray(a);
+                case short[] a -> MemorySegment.ofArray(a);
+                case int[] a -> MemorySegment.ofArray(a);
+                case long[] a -> MemorySegment.ofArray(a);
+                case float[] a -> MemorySegment.ofArray(a);
+                case double[] a -> MemorySegment.ofArray(a);
+                default -> throw new IllegalStateException();
+            };
+            MemorySegment.copy(sorted, 0, numeric.segment(), 0, sorted.byteSize());
+        }
+    }
+
+    private static Object toArray(NumericArray list) {
+        var type = list.element();
+        var segment = list.segment();
+        var size = list.size();
+        if (type.equals(Type.I8) || type.equals(Type.U8)) {
+            return segment.asSlice(0, size).toArray(ValueLayout.JAVA_BYTE);
+        } else if (type.equals(Type.I16) || type.equals(Type.U16)) {
+            return segment.asSlice(0, 2L * size).toArray(ValueLayout.JAVA_SHORT);
+        } else if (type.equals(Type.I32) || type.equals(Type.U32)) {
+            return segment.asSlice(0, 4L * size).toArray(ValueLayout.JAVA_INT);
+        } else if (type.equals(Type.F32)) {
+            return segment.asSlice(0, 4L * size).toArray(ValueLayout.JAVA_FLOAT);
+        } else if (type.equals(Type.F64)) {
+            return segment.asSlice(0, 8L * size).toArray(ValueLayout.JAVA_DOUBLE);
+        }
+        return segment.asSlice(0, 8L * size).toArray(ValueLayout.JAVA_LONG);
+    }
+
+    private static void flipSign(Object array, int from, int to) {
+        for (int i = from; i < to; i++) {
+            switch (array) {
+                case byte[] a -> a[i] ^= Byte.MIN_VALUE;
+                case short[] a -> a[i] ^= Short.MIN_VALUE;
+                case int[] a -> a[i] ^= Integer.MIN_VALUE;
+                case long[] a -> a[i] ^= Long.MIN_VALUE;
+                default -> throw new IllegalStateException();
+            }
+        }
+    }
+
+    private static int compare(Object a, Object b) {
+        if (a instanceof Long l && b instanceof Long r) {
+            return Long.compare(l, r);
+        }
+        return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+    }
+
+    private static Type elementType(List<?> list, Type type) {
+        return list instanceof NumericArray numeric ? numeric.element() : type;
+    }
+
+    private static boolean isFloat(List<?> list, Type type) {
+        return list instanceof NumericArray numeric
+                ? TypeAlgebra.isFloatType(numeric.element())
+                : TypeAlgebra.isFloatType(type) || !list.isEmpty() && list.get(0) instanceof Double;
+    }
+
+    // o elemento `i` de uma lista de inteiros, sem sinal nos tipos sem sinal
+    private static IntToLongFunction longs(List<?> list) {
+        if (!(list instanceof NumericArray numeric)) {
+            return i -> ((Number) list.get(i)).longValue();
+        }
+        var segment = numeric.segment();
+        var type = numeric.element();
+        if (type.equals(Type.I8)) {
+            return i -> segment.get(ValueLayout.JAVA_BYTE, i);
+        } else if (type.equals(Type.U8)) {
+            return i -> Byte.toUnsignedLong(segment.get(ValueLayout.JAVA_BYTE, i));
+        } else if (type.equals(Type.I16)) {
+            return i -> segment.getAtIndex(ValueLayout.JAVA_SHORT, i);
+        } else if (type.equals(Type.U16)) {
+            return i -> Short.toUnsignedLong(segment.getAtIndex(ValueLayout.JAVA_SHORT, i));
+        } else if (type.equals(Type.I32)) {
+            return i -> segment.getAtIndex(ValueLayout.JAVA_INT, i);
+        } else if (type.equals(Type.U32)) {
+            return i -> Integer.toUnsignedLong(segment.getAtIndex(ValueLayout.JAVA_INT, i));
+        }
+        return i -> segment.getAtIndex(ValueLayout.JAVA_LONG, i);
+    }
+
+    private static IntToDoubleFunction doubles(List<?> list) {
+        if (!(list instanceof NumericArray numeric)) {
+            return i -> ((Number) list.get(i)).doubleValue();
+        }
+        var segment = numeric.segment();
+        if (numeric.element().equals(Type.F32)) {
+            return i -> segment.getAtIndex(ValueLayout.JAVA_FLOAT, i);
+        }
+        return i -> segment.getAtIndex(ValueLayout.JAVA_DOUBLE, i);
+    }
+
+    private interface LongChunk {
+        long apply(int from, int to);
+    }
+
+    private interface DoubleChunk {
+        double apply(int from, int to);
+    }
+
+    // o resultado de `chunk` em cada pedaço de `CHUNK` elementos
+    private static long[] longChunks(int size, LongChunk chunk) {
+        var partial = new long[Math.max(1, (size + CHUNK - 1) / CHUNK)];
+        var chunks = IntStream.range(0, partial.length);
+        (partial.length > 1 ? chunks.parallel() : chunks)
+                .forEach(c -> partial[c] = chunk.apply(c * CHUNK, Math.min(size, (c + 1) * CHUNK)));
+        return partial;
+    }
+
+    private static double[] doubleChunks(int size, DoubleChunk chunk) {
+        var partial = new double[Math.max(1, (size + CHUNK - 1) / CHUNK)];
+        var chunks = IntStream.range(0, partial.length);
+        (partial.length > 1 ? chunks.parallel() : chunks)
+                .forEach(c -> partial[c] = chunk.apply(c * CHUNK, Math.min(size, (c + 1) * CHUNK)));
+        return partial;
+    }
+}
@@ -0,0 +1,203 @@
+package popsi.runtime.heap;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import popsi.interpreter.SliceError;
+
+/// Controle da memória ocupada pelas listas, registros e strings de um
+/// programa em execução.
+///
+/// Isto é uma contagem da memória viva com um limite, e não um coletor de
+/// lixo geracional: nada é movido nem liberado aqui. Os objetos em si vivem
+/// no heap da JVM, cujo coletor geracional já faz alocação por incremento de
+/// ponteiro em uma área de objetos novos e compacta os objetos antigos. Este
+/// heap só mede a memória do programa com os tamanhos definidos por `Layout`
+/// e termina a execução quando ela passa do limite.
+///
+/// Cada thread que executa o programa (a que chamou a função, as tarefas de
+/// `spawn` e os blocos de um loop paralelo) é um `Mutator`, com as suas
+/// raízes (as variáveis dos quadros da sua pilha) e um contador próprio de
+/// bytes alocados. A cada `STEP` bytes, o contador é somado ao total alocado
+/// desde a última contagem. Quando esse total passa do tamanho da área de
+/// objetos novos (`nursery`) e do que estava vivo na última contagem, os
+/// objetos vivos são contados de novo, percorrendo o grafo de objetos a
+/// partir das raízes de todas as threads. Como o intervalo entre contagens
+/// cresce com a memória viva, o custo total das contagens é proporcional ao
+/// número de bytes alocados.
+///
+/// A contagem não para as outras threads: um objeto alterado enquanto é
+/// percorrido pode ser contado sem parte dos seus filhos, então a memória
+/// viva de um programa paralelo é uma aproximação por baixo.
+public final class Heap {
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    // bytes alocados por uma thread antes de somá-los ao total
+    private static final long STEP = 64 << 10;
+
+    /// Grafo dos objetos do programa.
+    public interface Graph {
+        /// Tamanho de um objeto, ou 0 se o valor não ocupa memória no heap.
+        long sizeOf(Object value);
+
+        /// Visita os objetos referenciados por um objeto.
+        void children(Object value, Consumer<Object> visit);
+    }
+
+    /// Raízes do grafo de objetos: os valores guardados nas variáveis.
+    public interface Roots {
+        void forEach(Consumer<Object> visit);
+    }
+
+    private final long limit;
+    private final long nursery;
+    private final long step;
+    private final Set<Mutator> mutators = ConcurrentHashMap.newKeySet();
+    // bytes somados pelas threads desde a última contagem
+    private final AtomicLong allocated = new AtomicLong();
+    private volatile long live = 0;
+    // número de contagens feitas; os bytes que uma thread alocou antes da
+    // última contagem já foram contados por ela
+    private volatile long epoch = 0;
+
+    /// `limit`: memória viva máxima, em bytes; `nursery`: bytes alocados entre
+    /// duas contagens, no mínimo.
+    public Heap(long limit, long nursery) {
+        this.limit = limit;
+        this.nursery = nursery;
+        this.step = Math.max(1, Math.min(STEP, Math.min(limit, Math.max(nursery, 1)) / 16));
+    }
+
+    public static Heap unlimited() {
+        return new Heap(UNLIMITED, 0);
+    }
+
+    /// Uma thread que passa a executar o programa. Deve ser fechada quando a
+    /// thread termina.
+    public Mutator attach() {
+        var mutator = new Mutator();
+        if (limit != UNLIMITED) {
+            mutators.add(mutator);
+        }
+        return mutator;
+    }
+
+    /// Uma thread que executa o programa. Só a própria thread aloca por ela.
+    public final class Mutator implements AutoCloseable {
+        // o quadro do topo da pilha da thread
+        private volatile Roots roots;
+        // bytes alocados desde a contagem `seen` e ainda não somados ao total
+        private long pending = 0;
+        private long seen = epoch;
+
+        private Mutator() {
+        }
+
+        /// Passa a usar `roots` como raízes da thread e retorna as anteriores.
+        public Roots roots(Roots roots) {
+            var previous = this.roots;
+            this.roots = roots;
+            return previous;
+        }
+
+        /// Registra a alocação de um objeto de `bytes` bytes. Lança
+        /// `HeapExhaustedError` se a memória viva passaria do limite.
+        public void allocate(long bytes, Graph graph) {
+            account(bytes, bytes, graph);
+        }
+
+        /// Registra que um objeto já alcançável pelas raízes, como uma lista
+        /// que ganhou espaço para mais elementos, passou a ocupar mais `bytes`
+        /// bytes. Lança `HeapExhaustedError` se a memória viva passaria do
+        /// limite.
+        public void grow(long bytes, Graph graph) {
+            account(bytes, 0, graph);
+        }
+
+        // `unreachable`: a parte dos bytes que a contagem não encontra a
+        // partir das raízes
+        private void account(long bytes, long unreachable, Graph graph) {
+            if (limit == UNLIMITED) {
+                return;
+            }
+            if (seen != epoch) {
+                seen = epoch;
+                pending = 0;
+            }
+            pending += bytes;
+            if (pending < step && live + pending <= limit) {
+                return;
+            }
+
+            var total = allocated.addAndGet(pending);
+            pending = 0;
+            if (total < Math.max(nursery, live) && live + total <= limit) {
+                return;
+            }
+            collect(unreachable, graph);
+        }
+
+        @Override
+        public void close() {
+            mutators.remove(this);
+        }
+    }
+
+    // Conta a memória viva. Uma contagem por vez: quem espera pela contagem
+    // de outra thread só conta de novo se o total ainda pedir.
+    private synchronized void collect(long bytes, Graph graph) {
+        var counted = allocated.get();
+        if (counted < Math.max(nursery, live) && live + counted <= limit) {
+            return;
+        }
+        epoch++;
+        // o objeto sendo alocado ainda não está em nenhuma variável
+        live = census(graph) + bytes;
+        allocated.addAndGet(-counted);
+        if (live > limit) {
+            throw new HeapExhaustedError(live, limit);
+        }
+    }
+
+    // soma os tamanhos dos objetos alcançáveis a partir das raízes
+    private long census(Graph graph) {
+        var visited = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        var pending = new ArrayDeque<Object>();
+        Consumer<Object> visit = value -> {
+            if (value != null && visited.add(value)) {
+                pending.push(value);
+            }
+        };
+        for (var mutator : mutators) {
+            var roots = mutator.roots;
+            if (roots != null) {
+                concurrently(() -> roots.forEach(visit));
+            }
+        }
+
+        long total = 0;
+        while (!pending.isEmpty()) {
+            var value = pending.pop();
+            total += graph.sizeOf(value);
+            concurrently(() -> graph.children(value, visit));
+        }
+        return total;
+    }
+
+    // Percorre valores que outra thread pode estar alterando (ou fatias de
+    // listas que diminuíram); o que não pôde ser percorrido fica fora da
+    // contagem.
+    private static void concurrently(Runnable walk) {
+        try {
+            walk.run();
+        } catch (ConcurrentModificationException | SliceError e) {
+            // o valor mudou durante a contagem
+        }
+    }
+}
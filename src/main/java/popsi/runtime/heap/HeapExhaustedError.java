@@ -0,0 +1,8 @@
+package popsi.runtime.heap;
+
+/// A memória viva do programa passou do limite do heap.
+public class HeapExhaustedError extends RuntimeException {
+    public HeapExhaustedError(long live, long limit) {
+        super("Memória esgotada: " + live + " bytes vivos, limite de " + limit + " bytes.");
+    }
+}
@@ -0,0 +1,73 @@
+package popsi.runtime.heap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import popsi.analysis.Type;
+
+/// Disposição na memória de um objeto Popsi, derivada do seu tipo.
+///
+/// Todo objeto começa com um cabeçalho de `HEADER` bytes (tipo e tamanho). Os
+/// campos de um registro são guardados na ordem de declaração, cada um
+/// alinhado à sua largura; os elementos de uma lista e os bytes de uma string
+/// vêm logo depois do cabeçalho. Listas, registros, strings e mapas são
+/// guardados nos campos e elementos como referências de 8 bytes.
+///
+/// `offsets` são as posições dos campos de um registro, a partir do início
+/// do objeto; para listas e strings é vazio. As strings são guardadas em
+/// UTF-8.
+public record Layout(long size, List<Long> offsets) {
+    public static final long HEADER = 16;
+    public static final long REFERENCE = 8;
+
+    /// Largura de um valor do tipo quando guardado em um campo ou elemento.
+    public static long width(Type type) {
+        if (type.equals(Type.I8) || type.equals(Type.U8) || type.equals(Type.BOOLEAN)) {
+            return 1;
+        } else if (type.equals(Type.I16) || type.equals(Type.U16)) {
+            return 2;
+        } else if (type.equals(Type.I32) || type.equals(Type.U32) || type.equals(Type.F32)
+                || type.equals(Type.CHAR)) {
+            return 4;
+        } else if (type.equals(Type.UNIT)) {
+            return 0;
+        }
+        // i64, u64, f64 e referências
+        return REFERENCE;
+    }
+
+    public static Layout of(Type.Record record) {
+        var offsets = new ArrayList<Long>();
+        var offset = HEADER;
+        for (var field : record.types()) {
+            var width = width(field);
+            offset = align(offset, Math.max(width, 1));
+            offsets.add(offset);
+            offset += width;
+        }
+        return new Layout(align(offset, REFERENCE), offsets);
+    }
+
+    public static Layout list(Type element, long length) {
+        return new Layout(align(HEADER + width(element) * length, REFERENCE), List.of());
+    }
+
+    /// Lista de `bool` guardada com um bit por elemento.
+    public static Layout bits(long length) {
+        return new Layout(align(HEADER + (length + 7) / 8, REFERENCE), List.of());
+    }
+
+    /// Tabela de um mapa com `capacity` posições, cada uma com uma chave de
+    /// `keyWidth` bytes e uma referência para o valor.
+    public static Layout table(long keyWidth, long capacity) {
+        return new Layout(align(HEADER + (keyWidth + REFERENCE) * capacity, REFERENCE), List.of());
+    }
+
+    public static Layout string(long bytes) {
+        return new Layout(align(HEADER + bytes, REFERENCE), List.of());
+    }
+
+    private static long align(long offset, long alignment) {
+        return (offset + alignment - 1) / alignment * alignment;
+    }
+}
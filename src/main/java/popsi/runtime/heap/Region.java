@@ -0,0 +1,120 @@
+package popsi.runtime.heap;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.stream.IntStream;
+
+/// Memória para os valores que não sobrevivem à chamada de função que os
+/// criou.
+///
+/// Cada thread tem uma região, usada como uma pilha: uma chamada guarda a
+/// posição do topo (`mark`) ao começar, aloca avançando o topo, e ao retornar
+/// libera de uma vez tudo o que alocou, voltando o topo para a posição
+/// guardada (`release`). A memória fica fora do heap da JVM e é reaproveitada
+/// pelas chamadas seguintes, sem passar pelo coletor de lixo.
+///
+/// A região é uma sequência de blocos, cada um com o dobro do tamanho do
+/// anterior, e só pega um bloco quando o topo chega nele. Quando o topo volta
+/// ao início, a região devolve os blocos a um estoque comum a todas as
+/// threads; assim, uma thread só ocupa memória enquanto executa uma chamada
+/// que usa a região. O estoque guarda poucos blocos de cada tamanho, e os que
+/// sobram são liberados na hora.
+///
+/// Quando não há espaço, `allocate` não aloca nada, e o valor deve ser criado
+/// da forma normal.
+public final class Region {
+    // tamanho do primeiro bloco
+    private static final long FIRST = 64 << 10;
+    // número de blocos de uma região, que somam quase 4 MiB
+    private static final int BLOCKS = 6;
+    // blocos guardados de cada tamanho
+    private static final int POOLED = Runtime.getRuntime().availableProcessors();
+
+    private static final ThreadLocal<Region> CURRENT = ThreadLocal.withInitial(Region::new);
+
+    // o estoque dos blocos de cada tamanho
+    private static final List<ArrayBlockingQueue<Block>> POOL = IntStream.range(0, BLOCKS)
+            .mapToObj(_ -> new ArrayBlockingQueue<Block>(POOLED))
+            .toList();
+
+    private record Block(Arena arena, MemorySegment memory) {
+    }
+
+    // os blocos pegos do estoque; o bloco `k` tem `FIRST << k` bytes
+    private final ArrayList<Block> blocks = new ArrayList<>();
+    // o bloco em que está o topo
+    private int current = 0;
+    private long top = 0;
+
+    private Region() {
+    }
+
+    /// A região da thread atual.
+    public static Region current() {
+        return CURRENT.get();
+    }
+
+    public long mark() {
+        return top;
+    }
+
+    public void release(long mark) {
+        top = mark;
+        current = 0;
+        while (top > end(current)) {
+            current++;
+        }
+        if (top == 0) {
+            for (int k = 0; k < blocks.size(); k++) {
+                var block = blocks.get(k);
+                if (!POOL.get(k).offer(block)) {
+                    block.arena().close();
+                }
+            }
+            blocks.clear();
+        }
+    }
+
+    /// Aloca `bytes` bytes zerados, alinhados a `alignment`.
+    public Optional<MemorySegment> allocate(long bytes, long alignment) {
+        // o que não cabe no resto do bloco atual vai para o início do seguinte
+        for (int k = current; k < BLOCKS; k++) {
+            var from = k == current ? top : start(k);
+            var start = (from + alignment - 1) / alignment * alignment;
+            if (start + bytes <= end(k)) {
+                var memory = block(k).memory();
+                current = k;
+                top = start + bytes;
+                return Optional.of(memory.asSlice(start - start(k), bytes).fill((byte) 0));
+            }
+        }
+        return Optional.empty();
+    }
+
+    // posição do início do bloco `k`
+    private static long start(int k) {
+        return FIRST * ((1L << k) - 1);
+    }
+
+    // posição do fim do bloco `k`
+    private static long end(int k) {
+        return start(k + 1);
+    }
+
+    private Block block(int k) {
+        while (blocks.size() <= k) {
+            var level = blocks.size();
+            var block = POOL.get(level).poll();
+            if (block == null) {
+                var arena = Arena.ofShared();
+                block = new Block(arena, arena.allocate(FIRST << level, 16));
+            }
+            blocks.add(block);
+        }
+        return blocks.get(k);
+    }
+}
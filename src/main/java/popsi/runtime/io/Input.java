@@ -0,0 +1,233 @@
+package popsi.runtime.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/// Entrada do programa, lida da entrada padrão em blocos de `SIZE` bytes.
+///
+/// A entrada é dividida em palavras separadas por espaços. `next` copia a
+/// próxima palavra para um array reaproveitado, e os números são lidos
+/// diretamente dos bytes da palavra, sem criar strings. Só os números de
+/// ponto flutuante que não têm uma conversão exata rápida (com mais de 15
+/// dígitos, ou expoentes grandes) passam por `Double.parseDouble`.
+///
+/// As funções de leitura lançam `NumberFormatException`, com a palavra como
+/// mensagem, quando a palavra não é um valor do tipo pedido.
+public final class Input {
+    public static final int SIZE = 1 << 16;
+
+    /// A entrada padrão do processo.
+    public static final Input STDIN = new Input(System.in);
+
+    // potências de 10 representadas exatamente em um double
+    private static final double[] POWERS = new double[23];
+
+    static {
+        POWERS[0] = 1;
+        for (int i = 1; i < POWERS.length; i++) {
+            POWERS[i] = POWERS[i - 1] * 10;
+        }
+    }
+
+    private final InputStream stream;
+    private final byte[] buffer = new byte[SIZE];
+    private int position = 0;
+    private int limit = 0;
+
+    private byte[] word = new byte[64];
+    private int length = 0;
+
+    private Input(InputStream stream) {
+        this.stream = stream;
+    }
+
+    // o próximo byte, ou -1 no fim da entrada
+    private int peek() {
+        if (position == limit) {
+            // o que o programa escreveu antes aparece antes de esperar a entrada
+            synchronized (Output.STDOUT) {
+                Output.STDOUT.flush();
+            }
+            try {
+                limit = Math.max(stream.read(buffer), 0);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            position = 0;
+            if (limit == 0) {
+                return -1;
+            }
+        }
+        return buffer[position] & 0xFF;
+    }
+
+    /// Avança até a próxima palavra. Retorna `false` no fim da entrada.
+    public boolean next() {
+        int b;
+        while ((b = peek()) != -1 && b <= ' ') {
+            position++;
+        }
+        if (b == -1) {
+            return false;
+        }
+        length = 0;
+        while ((b = peek()) != -1 && b > ' ') {
+            if (length == word.length) {
+                word = Arrays.copyOf(word, length * 2);
+            }
+            word[length++] = (byte) b;
+            position++;
+        }
+        return true;
+    }
+
+    /// Os bytes da palavra atual.
+    public byte[] word() {
+        return Arrays.copyOf(word, length);
+    }
+
+    /// A palavra atual como um inteiro com sinal, como em `Long.parseLong`.
+    public long readLong() {
+        var i = 0;
+        var negative = false;
+        if (length > 0 && (word[0] == '-' || word[0] == '+')) {
+            negative = word[0] == '-';
+            i++;
+        }
+        if (i == length) {
+            throw invalid();
+        }
+        // acumulado como negativo, para que Long.MIN_VALUE caiba
+        long value = 0;
+        for (; i < length; i++) {
+            var digit = word[i] - '0';
+            if (digit < 0 || digit > 9 || value < Long.MIN_VALUE / 10) {
+                throw invalid();
+            }
+            value *= 10;
+            if (value < Long.MIN_VALUE + digit) {
+                throw invalid();
+            }
+            value -= digit;
+        }
+        if (!negative) {
+            if (value == Long.MIN_VALUE) {
+                throw invalid();
+            }
+            value = -value;
+        }
+        return value;
+    }
+
+    /// A palavra atual como um inteiro sem sinal de 64 bits, como em
+    /// `Long.parseUnsignedLong`.
+    public long readUnsigned() {
+        var i = length > 0 && word[0] == '+' ? 1 : 0;
+        if (i == length) {
+            throw invalid();
+        }
+        long value = 0;
+        for (; i < length; i++) {
+            var digit = word[i] - '0';
+            if (digit < 0 || digit > 9 || Long.compareUnsigned(value, Long.divideUnsigned(-1L, 10)) > 0) {
+                throw invalid();
+            }
+            var next = value * 10 + digit;
+            if (Long.compareUnsigned(next, value * 10) < 0) {
+                throw invalid();
+            }
+            value = next;
+        }
+        return value;
+    }
+
+    /// A palavra atual como um número de ponto flutuante, como em
+    /// `Double.parseDouble`.
+    public double readDouble() {
+        var i = 0;
+        var negative = false;
+        if (length > 0 && (word[0] == '-' || word[0] == '+')) {
+            negative = word[0] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        var any = false;
+        for (; i < length && word[i] >= '0' && word[i] <= '9'; i++) {
+            any = true;
+            if (mantissa != 0 || word[i] != '0') {
+                mantissa = mantissa * 10 + (word[i] - '0');
+                digits++;
+            }
+        }
+        if (i < length && word[i] == '.') {
+            for (i++; i < length && word[i] >= '0' && word[i] <= '9'; i++) {
+                any = true;
+                if (mantissa != 0 || word[i] != '0') {
+                    mantissa = mantissa * 10 + (word[i] - '0');
+                    digits++;
+                }
+                exponent--;
+            }
+        }
+        if (any && i < length && (word[i] == 'e' || word[i] == 'E')) {
+            var j = i + 1;
+            var negativeExponent = false;
+            if (j < length && (word[j] == '-' || word[j] == '+')) {
+                negativeExponent = word[j] == '-';
+                j++;
+            }
+            var e = 0;
+            var start = j;
+            for (; j < length && word[j] >= '0' && word[j] <= '9' && e < 1000; j++) {
+                e = e * 10 + (word[j] - '0');
+            }
+            if (j > start) {
+                exponent += negativeExponent ? -e : e;
+                i = j;
+            }
+        }
+
+        // com até 15 dígitos e uma potência de 10 exata, a conta é arredondada
+        // uma só vez e dá o double mais próximo
+        if (any && i == length && digits <= 15 && Math.abs(exponent) < POWERS.length) {
+            var value = exponent >= 0 ? mantissa * POWERS[exponent] : mantissa / POWERS[-exponent];
+            return negative ? -value : value;
+        }
+        try {
+            return Double.parseDouble(text());
+        } catch (NumberFormatException e) {
+            throw invalid();
+        }
+    }
+
+    /// O primeiro caractere da palavra atual.
+    public int readCodePoint() {
+        var codePoint = Utf8.decode(word, 0, length);
+        if (codePoint == Utf8.INVALID) {
+            throw invalid();
+        }
+        return codePoint;
+    }
+
+    /// A palavra atual como um `bool`, como em `Boolean.parseBoolean`.
+    public boolean readBoolean() {
+        if (length != 4) {
+            return false;
+        }
+        return (word[0] | 0x20) == 't' && (word[1] | 0x20) == 'r' && (word[2] | 0x20) == 'u'
+                && (word[3] | 0x20) == 'e';
+    }
+
+    private String text() {
+        return new String(word, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private NumberFormatException invalid() {
+        return new NumberFormatException(text());
+    }
+}
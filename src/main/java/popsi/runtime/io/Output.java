@@ -0,0 +1,177 @@
+package popsi.runtime.io;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Optional;
+
+/// Saída do programa, acumulada em um buffer fora do heap da JVM e escrita
+/// de uma vez na saída padrão (ou em outro destino, com `to`) quando o buffer
+/// enche ou em `flush`.
+///
+/// Os inteiros são escritos dígito a dígito no buffer, sem criar strings.
+/// Os números de ponto flutuante com valor inteiro também; os demais passam
+/// por `Double.toString`, que dá a representação mais curta.
+public final class Output {
+    public static final int SIZE = 1 << 20;
+
+    /// A saída padrão do processo.
+    public static final Output STDOUT = new Output(new FileOutputStream(FileDescriptor.out).getChannel(),
+            Optional.empty());
+
+    private static final byte[] TRUE = { 't', 'r', 'u', 'e' };
+    private static final byte[] FALSE = { 'f', 'a', 'l', 's', 'e' };
+
+    private final WritableByteChannel channel;
+    // o destino de `to`, esvaziado depois de cada `flush`
+    private final Optional<OutputStream> stream;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(SIZE);
+    // dígitos de um inteiro, do último para o primeiro
+    private final byte[] digits = new byte[20];
+
+    private Output(WritableByteChannel channel, Optional<OutputStream> stream) {
+        this.channel = channel;
+        this.stream = stream;
+    }
+
+    /// Saída que escreve em `stream`.
+    public static Output to(OutputStream stream) {
+        return new Output(Channels.newChannel(stream), Optional.of(stream));
+    }
+
+    public void write(byte b) {
+        if (!buffer.hasRemaining()) {
+            flush();
+        }
+        buffer.put(b);
+    }
+
+    public void write(byte[] bytes) {
+        for (int offset = 0; offset < bytes.length;) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            var length = Math.min(bytes.length - offset, buffer.remaining());
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    /// Escreve `text` em UTF-8.
+    public void write(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            var c = text.charAt(i);
+            if (c < 0x80) {
+                write((byte) c);
+            } else {
+                var codePoint = Character.codePointAt(text, i);
+                writeCodePoint(codePoint);
+                i += Character.charCount(codePoint) - 1;
+            }
+        }
+    }
+
+    public void writeCodePoint(int codePoint) {
+        if (codePoint < 0x80) {
+            write((byte) codePoint);
+        } else if (codePoint < 0x800) {
+            write((byte) (0xC0 | codePoint >>> 6));
+            write((byte) (0x80 | codePoint & 0x3F));
+        } else if (codePoint < 0x10000) {
+            write((byte) (0xE0 | codePoint >>> 12));
+            write((byte) (0x80 | codePoint >>> 6 & 0x3F));
+            write((byte) (0x80 | codePoint & 0x3F));
+        } else {
+            write((byte) (0xF0 | codePoint >>> 18));
+            write((byte) (0x80 | codePoint >>> 12 & 0x3F));
+            write((byte) (0x80 | codePoint >>> 6 & 0x3F));
+            write((byte) (0x80 | codePoint & 0x3F));
+        }
+    }
+
+    public void write(boolean value) {
+        write(value ? TRUE : FALSE);
+    }
+
+    public void write(long value) {
+        if (value < 0) {
+            write((byte) '-');
+            // o módulo de Long.MIN_VALUE só cabe sem sinal
+            writeUnsigned(-value);
+        } else {
+            writeUnsigned(value);
+        }
+    }
+
+    /// Escreve `value` como um inteiro sem sinal de 64 bits.
+    public void writeUnsigned(long value) {
+        int count = 0;
+        if (value < 0) {
+            digits[count++] = (byte) ('0' + Long.remainderUnsigned(value, 10));
+            value = Long.divideUnsigned(value, 10);
+        }
+        do {
+            digits[count++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        while (count > 0) {
+            write(digits[--count]);
+        }
+    }
+
+    public void write(double value) {
+        if (integral(value)) {
+            write((long) value);
+            write((byte) '.');
+            write((byte) '0');
+        } else {
+            write(Double.toString(value));
+        }
+    }
+
+    public void write(float value) {
+        if (integral(value)) {
+            write((long) value);
+            write((byte) '.');
+            write((byte) '0');
+        } else {
+            write(Float.toString(value));
+        }
+    }
+
+    // se `toString` escreveria `value` como um inteiro seguido de `.0`
+    private static boolean integral(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e7
+                && Double.doubleToRawLongBits(value) != Double.doubleToRawLongBits(-0.0);
+    }
+
+    public void newline() {
+        write((byte) '\n');
+    }
+
+    /// Escreve o conteúdo do buffer na saída.
+    public void flush() {
+        if (this == STDOUT) {
+            // o que já foi escrito por `System.out` vem antes
+            System.out.flush();
+        }
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (stream.isPresent()) {
+                stream.get().flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            buffer.clear();
+        }
+    }
+}
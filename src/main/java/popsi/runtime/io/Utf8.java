@@ -0,0 +1,51 @@
+package popsi.runtime.io;
+
+/// Decodificação de caracteres em UTF-8, com a validação das sequências.
+public final class Utf8 {
+    /// Retornado por `decode` quando a sequência é inválida.
+    public static final int INVALID = -1;
+
+    private Utf8() {
+    }
+
+    /// O caractere que começa em `bytes[offset]`, sem passar de `end`, ou
+    /// `INVALID` se a sequência estiver truncada, tiver bytes a mais para o
+    /// caractere, codificar uma metade de par substituto (U+D800 a U+DFFF) ou
+    /// passar de U+10FFFF.
+    public static int decode(byte[] bytes, int offset, int end) {
+        var lead = bytes[offset] & 0xFF;
+        if (lead < 0x80) {
+            return lead;
+        }
+        var size = lead < 0xC2 ? 0 : lead < 0xE0 ? 2 : lead < 0xF0 ? 3 : lead < 0xF5 ? 4 : 0;
+        if (size == 0 || offset + size > end) {
+            return INVALID;
+        }
+        var codePoint = lead & (0xFF >>> (size + 1));
+        for (int i = 1; i < size; i++) {
+            var next = bytes[offset + i];
+            if ((next & 0xC0) != 0x80) {
+                return INVALID;
+            }
+            codePoint = codePoint << 6 | next & 0x3F;
+        }
+        if (size == 3 && (codePoint < 0x800 || codePoint >= 0xD800 && codePoint <= 0xDFFF)
+                || size == 4 && (codePoint < 0x10000 || codePoint > 0x10FFFF)) {
+            return INVALID;
+        }
+        return codePoint;
+    }
+
+    /// Número de bytes do caractere que começa com `lead`, em uma sequência
+    /// já validada.
+    public static int sequence(int lead) {
+        if (lead < 0x80) {
+            return 1;
+        } else if (lead < 0xE0) {
+            return 2;
+        } else if (lead < 0xF0) {
+            return 3;
+        }
+        return 4;
+    }
+}
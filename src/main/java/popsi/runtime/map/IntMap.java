@@ -0,0 +1,105 @@
+package popsi.runtime.map;
+
+import java.util.function.BiConsumer;
+
+/// Mapa com chaves inteiras, guardadas em um `long[]`. As chaves `char` são
+/// guardadas pelo código do caractere.
+public final class IntMap implements PopsiMap {
+    private static final int INITIAL_BITS = 4;
+
+    private long[] keys;
+    private Object[] values;
+    private boolean[] used;
+    private int bits;
+    private int size;
+
+    IntMap() {
+        allocate(INITIAL_BITS);
+    }
+
+    private void allocate(int bits) {
+        this.bits = bits;
+        this.keys = new long[1 << bits];
+        this.values = new Object[1 << bits];
+        this.used = new boolean[1 << bits];
+    }
+
+    private static long key(Object key) {
+        return key instanceof Integer c ? (long) c : (Long) key;
+    }
+
+    // a posição da chave, ou a posição vazia onde ela seria guardada
+    private int find(long key) {
+        var mask = keys.length - 1;
+        var slot = PopsiMap.slot(key, bits);
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    @Override
+    public Object get(Object key) {
+        var slot = find(key(key));
+        if (!used[slot]) {
+            throw new MissingKeyError(key);
+        }
+        return values[slot];
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        var k = key(key);
+        var slot = find(k);
+        if (!used[slot]) {
+            // a tabela fica no máximo metade cheia
+            if (2 * (size + 1) > keys.length) {
+                grow();
+                slot = find(k);
+            }
+            used[slot] = true;
+            keys[slot] = k;
+            size++;
+        }
+        values[slot] = value;
+    }
+
+    private void grow() {
+        var oldKeys = keys;
+        var oldValues = values;
+        var oldUsed = used;
+        allocate(bits + 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                var slot = find(oldKeys[i]);
+                used[slot] = true;
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    @Override
+    public boolean contains(Object key) {
+        return used[find(key(key))];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int capacity() {
+        return keys.length;
+    }
+
+    @Override
+    public void forEach(BiConsumer<Object, Object> visit) {
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                visit.accept(keys[i], values[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package popsi.runtime.map;
+
+import popsi.runtime.IntrinsicError;
+
+/// Leitura de uma chave que não está no mapa.
+public class MissingKeyError extends IntrinsicError {
+    public MissingKeyError(Object key) {
+        super("Chave não encontrada no mapa: " + key + ".");
+    }
+}
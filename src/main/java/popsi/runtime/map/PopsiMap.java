@@ -0,0 +1,46 @@
+package popsi.runtime.map;
+
+import java.util.function.BiConsumer;
+
+import popsi.analysis.Type;
+import popsi.analysis.Type.TypeAlgebra;
+
+/// Valor do tipo `map[K, V]`.
+///
+/// Os mapas usam endereçamento aberto: as chaves ficam em um array, e uma
+/// chave é procurada a partir da posição dada pelo seu hash, avançando uma
+/// posição por vez até achá-la ou achar uma posição vazia. Os mapas com chaves
+/// inteiras (e `char`) guardam as chaves em um `long[]`, sem criar objetos
+/// para elas; os com chaves `str` guardam as próprias strings, que já têm o
+/// hash calculado.
+public sealed interface PopsiMap permits IntMap, StrMap {
+    /// Um mapa vazio com chaves do tipo `key`. Quando o tipo das chaves não é
+    /// conhecido, as chaves são comparadas como objetos.
+    static PopsiMap create(Type key) {
+        if (TypeAlgebra.isIntegerType(key) || key.equals(Type.CHAR)) {
+            return new IntMap();
+        }
+        return new StrMap();
+    }
+
+    /// O valor guardado em `key`; `MissingKeyError` se a chave não estiver no
+    /// mapa.
+    Object get(Object key);
+
+    void put(Object key, Object value);
+
+    boolean contains(Object key);
+
+    int size();
+
+    /// Número de posições da tabela, ocupadas ou não.
+    int capacity();
+
+    /// Visita as chaves e valores, na ordem da tabela.
+    void forEach(BiConsumer<Object, Object> visit);
+
+    // espalha os bits do hash; a posição é dada pelos bits mais altos
+    static int slot(long hash, int bits) {
+        return (int) ((hash * 0x9E3779B97F4A7C15L) >>> (64 - bits));
+    }
+}
@@ -0,0 +1,95 @@
+package popsi.runtime.map;
+
+import java.util.function.BiConsumer;
+
+/// Mapa com chaves `str`, comparadas por `equals` a partir do hash guardado
+/// em cada string. Uma posição vazia tem a chave `null`.
+public final class StrMap implements PopsiMap {
+    private static final int INITIAL_BITS = 4;
+
+    private Object[] keys;
+    private Object[] values;
+    private int bits;
+    private int size;
+
+    StrMap() {
+        allocate(INITIAL_BITS);
+    }
+
+    private void allocate(int bits) {
+        this.bits = bits;
+        this.keys = new Object[1 << bits];
+        this.values = new Object[1 << bits];
+    }
+
+    // a posição da chave, ou a posição vazia onde ela seria guardada
+    private int find(Object key) {
+        var mask = keys.length - 1;
+        var slot = PopsiMap.slot(key.hashCode(), bits);
+        while (keys[slot] != null && !keys[slot].equals(key)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    @Override
+    public Object get(Object key) {
+        var slot = find(key);
+        if (keys[slot] == null) {
+            throw new MissingKeyError(key);
+        }
+        return values[slot];
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        var slot = find(key);
+        if (keys[slot] == null) {
+            // a tabela fica no máximo metade cheia
+            if (2 * (size + 1) > keys.length) {
+                grow();
+                slot = find(key);
+            }
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] = value;
+    }
+
+    private void grow() {
+        var oldKeys = keys;
+        var oldValues = values;
+        allocate(bits + 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                var slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    @Override
+    public boolean contains(Object key) {
+        return keys[find(key)] != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int capacity() {
+        return keys.length;
+    }
+
+    @Override
+    public void forEach(BiConsumer<Object, Object> visit) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                visit.accept(keys[i], values[i]);
+            }
+        }
+    }
+}
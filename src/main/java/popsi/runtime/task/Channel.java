@@ -0,0 +1,176 @@
+package popsi.runtime.task;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import popsi.runtime.IntrinsicError;
+
+/// Valor do tipo `chan[T]`: uma fila com no máximo `capacity` valores, usada
+/// pelas tarefas para trocar valores.
+///
+/// Os valores ficam em um buffer circular sem travas: cada posição tem um
+/// número de sequência que diz se ela está livre para a próxima escrita ou
+/// pronta para a próxima leitura, e quem envia (ou recebe) reserva a posição
+/// avançando `tail` (ou `head`) com um compare-and-set. Várias tarefas podem
+/// enviar e receber ao mesmo tempo.
+///
+/// Só quem precisa esperar, porque o canal está cheio (ou vazio), usa a trava,
+/// para dormir até que outra tarefa libere uma posição (ou envie um valor).
+public final class Channel {
+    // tentativas antes de dormir; com um só processador, ninguém muda o
+    // canal enquanto se tenta
+    private static final int SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 64 : 0;
+    private static final Object EMPTY = new Object();
+
+    private final int capacity;
+    private final Object[] buffer;
+    private final AtomicLongArray sequence;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final AtomicInteger receivers = new AtomicInteger();
+    private final AtomicInteger senders = new AtomicInteger();
+
+    public Channel(int capacity) {
+        if (capacity < 1) {
+            throw new IntrinsicError("Capacidade inválida para um canal: " + capacity + ".");
+        }
+        this.capacity = capacity;
+        this.buffer = new Object[capacity];
+        this.sequence = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequence.set(i, i);
+        }
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /// Número aproximado de valores no canal.
+    public int size() {
+        return (int) Math.max(0, Math.min(capacity, tail.get() - head.get()));
+    }
+
+    /// Envia `value`, esperando enquanto o canal estiver cheio.
+    public void send(Object value) {
+        for (int spin = 0; spin < SPINS; spin++) {
+            if (offer(value)) {
+                wake(receivers, notEmpty);
+                return;
+            }
+            Thread.onSpinWait();
+        }
+        await(senders, notFull, () -> offer(value) ? Boolean.TRUE : EMPTY);
+        wake(receivers, notEmpty);
+    }
+
+    /// Recebe o valor mais antigo, esperando enquanto o canal estiver vazio.
+    public Object receive() {
+        for (int spin = 0; spin < SPINS; spin++) {
+            var value = poll();
+            if (value != EMPTY) {
+                wake(senders, notFull);
+                return value;
+            }
+            Thread.onSpinWait();
+        }
+        var value = await(receivers, notEmpty, this::poll);
+        wake(senders, notFull);
+        return value;
+    }
+
+    private boolean offer(Object value) {
+        var position = tail.get();
+        while (true) {
+            var index = (int) (position % capacity);
+            var distance = sequence.get(index) - position;
+            if (distance == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    buffer[index] = value;
+                    // publica o valor para quem lê a sequência
+                    sequence.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (distance < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    // o valor mais antigo, ou `EMPTY`
+    private Object poll() {
+        var position = head.get();
+        while (true) {
+            var index = (int) (position % capacity);
+            var distance = sequence.get(index) - (position + 1);
+            if (distance == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    var value = buffer[index];
+                    buffer[index] = null;
+                    // libera a posição para a escrita da próxima volta
+                    sequence.set(index, position + capacity);
+                    return value;
+                }
+                position = head.get();
+            } else if (distance < 0) {
+                return EMPTY;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    private interface Attempt {
+        Object run();
+    }
+
+    // Repete `attempt` até que ela não retorne `EMPTY`, dormindo em
+    // `condition` entre as tentativas. Quem espera se conta em `waiting`
+    // antes de tentar, então quem muda o canal depois da tentativa vê a
+    // contagem e acorda quem espera.
+    private Object await(AtomicInteger waiting, Condition condition, Attempt attempt) {
+        lock.lock();
+        waiting.incrementAndGet();
+        try {
+            while (true) {
+                var result = attempt.run();
+                if (result != EMPTY) {
+                    return result;
+                }
+                condition.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IntrinsicError("Execução interrompida.");
+        } finally {
+            waiting.decrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    private void wake(AtomicInteger waiting, Condition condition) {
+        if (waiting.get() > 0) {
+            lock.lock();
+            try {
+                condition.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "chan(" + size() + "/" + capacity + ")";
+    }
+}
@@ -0,0 +1,83 @@
+package popsi.runtime.task;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/// As tarefas criadas por `spawn` durante uma execução.
+///
+/// Cada tarefa roda em uma thread virtual, então criar milhares delas é
+/// barato, e uma tarefa esperando um canal não ocupa uma thread do sistema.
+/// A execução só termina quando todas as tarefas terminam.
+///
+/// O primeiro erro de uma tarefa (ou da função principal) encerra a execução:
+/// as outras tarefas e a função principal são interrompidas, o que acorda as
+/// que esperam um canal, e o erro é relançado por `run`.
+public final class Tasks {
+    private final ConcurrentLinkedQueue<Thread> threads = new ConcurrentLinkedQueue<>();
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    private volatile Thread main;
+
+    /// Executa `body` na thread atual e espera as tarefas criadas por ela.
+    public <T> T run(Supplier<T> body) {
+        main = Thread.currentThread();
+        T result = null;
+        try {
+            result = body.get();
+        } catch (RuntimeException e) {
+            fail(e);
+        }
+        join();
+        main = null;
+        var error = failure.getAndSet(null);
+        if (error != null) {
+            throw error;
+        }
+        return result;
+    }
+
+    /// Inicia `task` em uma nova thread virtual.
+    public void spawn(Runnable task) {
+        var thread = Thread.ofVirtual().name("popsi-task").start(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+        });
+        threads.add(thread);
+        if (failure.get() != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void fail(RuntimeException error) {
+        if (!failure.compareAndSet(null, error)) {
+            return;
+        }
+        var current = Thread.currentThread();
+        var owner = main;
+        if (owner != null && owner != current) {
+            owner.interrupt();
+        }
+        for (var thread : threads) {
+            if (thread != current) {
+                thread.interrupt();
+            }
+        }
+    }
+
+    // espera as tarefas, inclusive as criadas enquanto espera
+    private void join() {
+        Thread thread;
+        while ((thread = threads.peek()) != null) {
+            try {
+                thread.join();
+                threads.remove(thread);
+            } catch (InterruptedException e) {
+                // interrompida pelo erro de uma tarefa; as outras também foram
+            }
+        }
+        Thread.interrupted();
+    }
+}
@@ -0,0 +1,77 @@
+// Uso de Popsi a partir de Java com `PopsiEngine`: erros de compilação,
+// conversão de listas, mapas e registros, `u64` e a saída de `debug` em um
+// destino próprio. Com o compilador construído:
+//
+//   java -cp build/classes/java/main test/Embutido.java
+//
+// Saída esperada:
+// erro: SEMANTIC: Uso de variável não declarada: 'x'.
+// soma: 12
+// idade: 42
+// u64: 18446744073709551615
+// pessoa: {nome=Ana, idade=31}
+// debug: Ana
+// argumento inválido: Falta o campo 'idade' do registro Pessoa.
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import popsi.CompiledProgram;
+import popsi.PopsiEngine;
+import popsi.optimizer.Optimizer;
+import popsi.runtime.heap.Heap;
+
+public class Embutido {
+    static final String PROGRAMA = """
+            rec Pessoa {
+                let nome: str;
+                let idade: i32;
+            }
+
+            fn soma(v: [i64]) -> i64 {
+                let total: i64 = 0;
+                for i: i32 in 0..#v {
+                    total += v[i];
+                }
+                return total;
+            }
+
+            fn idade(idades: map[str, i32], nome: str) -> i32 {
+                return get(idades, nome);
+            }
+
+            fn maior(x: u64) -> u64 {
+                return x;
+            }
+
+            fn aniversario(p: Pessoa) -> Pessoa {
+                debug p.nome;
+                return Pessoa(nome: p.nome, idade: p.idade + 1);
+            }
+            """;
+
+    public static void main(String[] args) {
+        var errado = new PopsiEngine().compile("fn f() -> i32 { return x; }");
+        var erro = errado.unwrapErr().getFirst();
+        System.out.println("erro: " + erro.type() + ": " + erro.message());
+
+        var saida = new ByteArrayOutputStream();
+        var engine = new PopsiEngine(Optimizer.Options.DEFAULT, Heap::unlimited, saida);
+        CompiledProgram programa = engine.compile(PROGRAMA).unwrap();
+
+        System.out.println("soma: " + programa.invoke("soma", List.of(3, 4, 5)));
+        System.out.println("idade: " + programa.invoke("idade", Map.of("Ana", 42), "Ana"));
+        // os bits de -1 são o maior u64
+        System.out.println("u64: " + Long.toUnsignedString((Long) programa.invoke("maior", -1L)));
+        System.out.println("pessoa: " + programa.invoke("aniversario", Map.of("nome", "Ana", "idade", 30)));
+        System.out.print("debug: " + saida.toString(StandardCharsets.UTF_8));
+
+        try {
+            programa.invoke("aniversario", Map.of("nome", "Ana"));
+        } catch (IllegalArgumentException e) {
+            System.out.println("argumento inválido: " + e.getMessage());
+        }
+    }
+}